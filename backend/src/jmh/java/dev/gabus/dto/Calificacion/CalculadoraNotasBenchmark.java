@@ -0,0 +1,158 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.gabus.dto.Actividad.ActividadNodoView;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.ArbolActividades;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.Evaluador;
+
+/**
+ * Nota del trimestre de todo un grado sobre un árbol de actividades (principales con sub-actividades):
+ * CalculadoraNotas (enteros en centésimas) contra el mismo cálculo hecho con BigDecimal.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CalculadoraNotasBenchmark {
+
+    @Param({"40", "400"})
+    private int estudiantes;
+
+    @Param({"10", "50"})
+    private int actividades;
+
+    private ArbolActividades arbol;
+    private long[] notas;
+
+    // Mismos datos para la versión BigDecimal
+    private int[] padres;
+    private BigDecimal[] ponderaciones;
+    private boolean[] promedia;
+    private boolean[] tieneHijas;
+    private BigDecimal[] notasDecimales;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+
+        // Una de cada cuatro actividades es principal; el resto cuelga de la principal anterior
+        List<ActividadNodoView> nodos = new ArrayList<>();
+        long ultimaPrincipal = 0;
+        for (int j = 0; j < actividades; j++) {
+            long id = j + 1;
+            boolean principal = j % 4 == 0;
+            if (principal) {
+                ultimaPrincipal = id;
+            }
+            nodos.add(new Nodo(id, BigDecimal.valueOf(500 + random.nextInt(2001), 2), random.nextBoolean(), principal ? null : ultimaPrincipal));
+        }
+        arbol = new CalculadoraNotas().compilar(nodos);
+
+        int n = arbol.tamano();
+        padres = new int[n];
+        ponderaciones = new BigDecimal[n];
+        promedia = new boolean[n];
+        tieneHijas = new boolean[n];
+        for (int j = 0; j < n; j++) {
+            ActividadNodoView nodo = arbol.getColumnas().get(j);
+            padres[j] = arbol.padreDe(j);
+            ponderaciones[j] = nodo.getPonderacion();
+            promedia[j] = nodo.getPromedia();
+            if (padres[j] >= 0) {
+                tieneHijas[padres[j]] = true;
+            }
+        }
+
+        // 80 % de las celdas con nota
+        notas = new long[estudiantes * n];
+        notasDecimales = new BigDecimal[estudiantes * n];
+        Arrays.fill(notas, CalculadoraNotas.SIN_NOTA);
+        for (int c = 0; c < notas.length; c++) {
+            if (random.nextInt(5) != 0) {
+                notasDecimales[c] = BigDecimal.valueOf(random.nextInt(1001), 2);
+                notas[c] = CalculadoraNotas.aCentesimas(notasDecimales[c]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void calculadora(Blackhole bh) {
+        Evaluador evaluador = arbol.nuevoEvaluador();
+        int n = arbol.tamano();
+        for (int i = 0; i < estudiantes; i++) {
+            bh.consume(evaluador.evaluar(notas, i * n));
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        int n = padres.length;
+        for (int i = 0; i < estudiantes; i++) {
+            bh.consume(totalBigDecimal(notasDecimales, i * n, n));
+        }
+    }
+
+    private BigDecimal totalBigDecimal(BigDecimal[] fila, int desde, int n) {
+        BigDecimal[] sumaHijas = new BigDecimal[n];
+        BigDecimal[] pesoHijas = new BigDecimal[n];
+        BigDecimal sumaPrincipales = BigDecimal.ZERO;
+        BigDecimal pesoPrincipales = BigDecimal.ZERO;
+
+        for (int j = n - 1; j >= 0; j--) {
+            BigDecimal valor = fila[desde + j];
+            if (tieneHijas[j] && (promedia[j] || valor == null)) {
+                valor = promedio(sumaHijas[j], pesoHijas[j]);
+            }
+            if (valor == null) {
+                continue;
+            }
+            BigDecimal aporte = valor.multiply(ponderaciones[j]);
+            int padre = padres[j];
+            if (padre < 0) {
+                sumaPrincipales = sumaPrincipales.add(aporte);
+                pesoPrincipales = pesoPrincipales.add(ponderaciones[j]);
+            } else {
+                sumaHijas[padre] = sumaHijas[padre] == null ? aporte : sumaHijas[padre].add(aporte);
+                pesoHijas[padre] = pesoHijas[padre] == null ? ponderaciones[j] : pesoHijas[padre].add(ponderaciones[j]);
+            }
+        }
+        return promedio(sumaPrincipales, pesoPrincipales);
+    }
+
+    private static BigDecimal promedio(BigDecimal suma, BigDecimal peso) {
+        if (suma == null || peso == null || peso.signum() == 0) {
+            return null;
+        }
+        return suma.divide(peso, 2, RoundingMode.HALF_UP);
+    }
+
+    private record Nodo(Long id, BigDecimal ponderacion, boolean promedia, Long parentId) implements ActividadNodoView {
+        @Override public Long getId() { return id; }
+        @Override public String getNombre() { return "Actividad " + id; }
+        @Override public BigDecimal getPonderacion() { return ponderacion; }
+        @Override public Boolean getPromedia() { return promedia; }
+        @Override public Long getParentId() { return parentId; }
+    }
+}
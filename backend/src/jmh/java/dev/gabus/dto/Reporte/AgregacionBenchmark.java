@@ -0,0 +1,78 @@
+package dev.gabus.dto.Reporte;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.gabus.dto.Calificacion.SumaTrimestreView;
+import dev.gabus.dto.Trimestre.Trimestre;
+
+/**
+ * Agregación de notas del boletín: agrupar por (materia, trimestre), sumar nota * ponderación
+ * y armar las filas con calcularPromedioTrimestre. La agrupación se hace aquí en memoria, igual que
+ * la consulta sumarPorMateriaYTrimestre, para poder medirla sin base de datos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AgregacionBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int materias;
+
+    @Param({"1000", "10000", "100000"})
+    private int notas;
+
+    private DatosSinteticos.Nota[] datos;
+    private List<Trimestre> trimestres;
+
+    @Setup
+    public void preparar() {
+        datos = DatosSinteticos.notas(materias, notas);
+        trimestres = DatosSinteticos.trimestres();
+    }
+
+    @Benchmark
+    public List<ReporteCalificacionDTO> agruparYConstruirFilas() {
+        // 1. GROUP BY materia, trimestre con SUM(nota * ponderacion) y SUM(ponderacion)
+        BigDecimal[][] sumaPonderada = new BigDecimal[materias][DatosSinteticos.TRIMESTRES];
+        BigDecimal[][] sumaPonderaciones = new BigDecimal[materias][DatosSinteticos.TRIMESTRES];
+        for (DatosSinteticos.Nota nota : datos) {
+            int t = nota.trimestre() - 1;
+            BigDecimal acumulado = sumaPonderada[nota.materia()][t];
+            BigDecimal producto = nota.nota().multiply(nota.ponderacion());
+            sumaPonderada[nota.materia()][t] = acumulado == null ? producto : acumulado.add(producto);
+            BigDecimal pesos = sumaPonderaciones[nota.materia()][t];
+            sumaPonderaciones[nota.materia()][t] = pesos == null ? nota.ponderacion() : pesos.add(nota.ponderacion());
+        }
+
+        List<SumaTrimestreView> sumas = new ArrayList<>();
+        for (int m = 0; m < materias; m++) {
+            for (int t = 0; t < DatosSinteticos.TRIMESTRES; t++) {
+                if (sumaPonderada[m][t] != null) {
+                    sumas.add(new DatosSinteticos.Suma(1L, (long) m, DatosSinteticos.nombreMateria(m), (long) t + 1,
+                            sumaPonderada[m][t], sumaPonderaciones[m][t]));
+                }
+            }
+        }
+
+        // 2. Promedios por trimestre y filas del boletín
+        return ReporteService.construirFilas(sumas, trimestres);
+    }
+}
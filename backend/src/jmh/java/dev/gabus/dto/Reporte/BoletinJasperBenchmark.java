@@ -0,0 +1,82 @@
+package dev.gabus.dto.Reporte;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.gabus.dto.Calificacion.SumaTrimestreView;
+import dev.gabus.dto.Trimestre.Trimestre;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+
+/**
+ * Construcción de filas, llenado de la plantilla del boletín y exportación a PDF
+ * con la plantilla ya compilada por ReporteTemplateRegistry (como en producción).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BoletinJasperBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int materias;
+
+    private ReporteTemplateRegistry registry;
+    private JasperReport plantilla;
+    private List<SumaTrimestreView> sumas;
+    private List<Trimestre> trimestres;
+    private List<ReporteCalificacionDTO> filas;
+    private JasperPrint print;
+
+    @Setup
+    public void preparar() throws Exception {
+        registry = new ReporteTemplateRegistry();
+        registry.inicializar();
+        plantilla = registry.getReporte("boletin");
+        sumas = DatosSinteticos.sumas(materias);
+        trimestres = DatosSinteticos.trimestres();
+        filas = ReporteService.construirFilas(sumas, trimestres);
+        print = llenarBoletin();
+    }
+
+    @Benchmark
+    public List<ReporteCalificacionDTO> construirFilas() {
+        return ReporteService.construirFilas(sumas, trimestres);
+    }
+
+    @Benchmark
+    public JasperPrint llenar() throws JRException {
+        return llenarBoletin();
+    }
+
+    @Benchmark
+    public void exportarPdf() throws JRException {
+        JasperExportManager.exportReportToPdfStream(print, OutputStream.nullOutputStream());
+    }
+
+    private JasperPrint llenarBoletin() throws JRException {
+        Map<String, Object> parametros = registry.parametrosBase();
+        parametros.put("nombreEstudiante", "Apellido Nombre");
+        return JasperFillManager.fillReport(plantilla, parametros, new JRBeanCollectionDataSource(filas));
+    }
+}
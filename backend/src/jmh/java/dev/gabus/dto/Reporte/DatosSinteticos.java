@@ -0,0 +1,91 @@
+package dev.gabus.dto.Reporte;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.gabus.dto.Calificacion.SumaTrimestreView;
+import dev.gabus.dto.Trimestre.Trimestre;
+
+// Datos en memoria para los benchmarks (siempre con la misma semilla, para que las corridas sean comparables)
+final class DatosSinteticos {
+
+    static final int TRIMESTRES = 3;
+
+    private DatosSinteticos() {}
+
+    static List<Trimestre> trimestres() {
+        List<Trimestre> trimestres = new ArrayList<>();
+        for (int i = 1; i <= TRIMESTRES; i++) {
+            trimestres.add(Trimestre.builder()
+                    .id((long) i)
+                    .nombre("Trimestre " + i)
+                    .anioEscolar(2025)
+                    .fechaInicio(LocalDate.of(2025, 1 + (i - 1) * 4, 1))
+                    .fechaFin(LocalDate.of(2025, i * 4, 28))
+                    .build());
+        }
+        return trimestres;
+    }
+
+    static String nombreMateria(int indice) {
+        return "Materia " + indice;
+    }
+
+    // Una fila por (materia, trimestre), como las devuelve PromedioTrimestreRepository.sumarPorMateriaYTrimestre
+    static List<SumaTrimestreView> sumas(int materias) {
+        Random random = new Random(42);
+        List<SumaTrimestreView> sumas = new ArrayList<>();
+        for (int m = 0; m < materias; m++) {
+            for (int t = 1; t <= TRIMESTRES; t++) {
+                BigDecimal ponderaciones = BigDecimal.valueOf(100);
+                BigDecimal sumaPonderada = BigDecimal.valueOf(random.nextInt(1001), 2).multiply(ponderaciones);
+                sumas.add(new Suma(1L, (long) m, nombreMateria(m), (long) t, sumaPonderada, ponderaciones));
+            }
+        }
+        return sumas;
+    }
+
+    // Notas sueltas: cada una con su materia, trimestre, nota (0.00 - 10.00) y ponderación de la actividad
+    static Nota[] notas(int materias, int cantidad) {
+        Random random = new Random(42);
+        Nota[] notas = new Nota[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            notas[i] = new Nota(
+                    random.nextInt(materias),
+                    1 + random.nextInt(TRIMESTRES),
+                    BigDecimal.valueOf(random.nextInt(1001), 2),
+                    BigDecimal.valueOf(500 + random.nextInt(2001), 2));
+        }
+        return notas;
+    }
+
+    record Nota(int materia, int trimestre, BigDecimal nota, BigDecimal ponderacion) {}
+
+    static final class Suma implements SumaTrimestreView {
+        private final Long estudianteId;
+        private final Long materiaId;
+        private final String materia;
+        private final Long trimestreId;
+        private final BigDecimal sumaPonderada;
+        private final BigDecimal sumaPonderaciones;
+
+        Suma(Long estudianteId, Long materiaId, String materia, Long trimestreId, BigDecimal sumaPonderada, BigDecimal sumaPonderaciones) {
+            this.estudianteId = estudianteId;
+            this.materiaId = materiaId;
+            this.materia = materia;
+            this.trimestreId = trimestreId;
+            this.sumaPonderada = sumaPonderada;
+            this.sumaPonderaciones = sumaPonderaciones;
+        }
+
+        @Override public Long getEstudianteId() { return estudianteId; }
+        @Override public Long getMateriaId() { return materiaId; }
+        @Override public String getMateria() { return materia; }
+        @Override public Long getTrimestreId() { return trimestreId; }
+        @Override public BigDecimal getSumaPonderada() { return sumaPonderada; }
+        @Override public BigDecimal getSumaPonderaciones() { return sumaPonderaciones; }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.gabus.dto.Reporte;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+
+// Compilación de reports/boletin.jrxml (lo que ReporteTemplateRegistry hace una sola vez al arrancar)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PlantillaBenchmark {
+
+    private byte[] jrxml;
+
+    @Setup
+    public void preparar() throws Exception {
+        try (InputStream is = PlantillaBenchmark.class.getClassLoader().getResourceAsStream("reports/boletin.jrxml")) {
+            jrxml = is.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public JasperReport compilar() throws JRException {
+        return JasperCompileManager.compileReport(new ByteArrayInputStream(jrxml));
+    }
+}
@@ -2,13 +2,15 @@ package dev.gabus.controller;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -20,10 +22,20 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import dev.gabus.dto.Actividad.Actividad;
+import dev.gabus.dto.Actividad.ActividadArbolDTO;
 import dev.gabus.dto.Actividad.ActividadRepository;
+import dev.gabus.dto.Actividad.ArbolActividadService;
+import dev.gabus.dto.Actividad.CambiosActividadService;
+import dev.gabus.dto.Actividad.ClonacionActividadService;
+import dev.gabus.dto.Actividad.EliminacionActividadService;
+import dev.gabus.dto.Actividad.PresupuestoPonderacionService;
 import dev.gabus.dto.Calificacion.CalificacionRepository;
+import dev.gabus.dto.Calificacion.HistorialCalificacionService;
 import dev.gabus.dto.Materia.Materia;
 import dev.gabus.dto.Materia.MateriaRepository;
+import dev.gabus.dto.Promedio.PromedioTrimestreService;
+import dev.gabus.dto.Reporte.BoletinCache;
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios;
 import dev.gabus.dto.Trimestre.TrimestreRepository;
 import dev.gabus.dto.Usuario.Role;
 import dev.gabus.dto.Usuario.Usuario;
@@ -42,6 +54,14 @@ public class ActividadController {
     private final TrimestreRepository trimestreRepository;
     private final CalificacionRepository calificacionRepository;
     private final UsuarioRepository usuarioRepository;
+    private final BoletinCache boletinCache;
+    private final PromedioTrimestreService promedioTrimestreService;
+    private final HistorialCalificacionService historialCalificacionService;
+    private final ArbolActividadService arbolActividadService;
+    private final PresupuestoPonderacionService presupuestoPonderacionService;
+    private final CambiosActividadService cambiosActividadService;
+    private final EliminacionActividadService eliminacionActividadService;
+    private final ClonacionActividadService clonacionActividadService;
 
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -55,9 +75,9 @@ public class ActividadController {
         return materia.getProfesor().getId().equals(user.getId());
     }
 
-    // Listar solo las actividades raíz (sin padre)
+    // Listar las actividades raíz (sin padre), cada una con todas sus sub-actividades anidadas
     @GetMapping
-    public ResponseEntity<List<Actividad>> getActividades(
+    public ResponseEntity<List<ActividadArbolDTO>> getActividades(
             @RequestParam Long materiaId,
             @RequestParam Long trimestreId
     ) {
@@ -68,8 +88,8 @@ public class ActividadController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<Actividad> rootActivities = actividadRepository.findByMateriaIdAndTrimestreIdAndParentIsNull(materiaId, trimestreId);
-        return ResponseEntity.ok(rootActivities);
+        // Una sola consulta para todo el árbol, sin importar cuántos niveles tenga
+        return ResponseEntity.ok(arbolActividadService.cargarArbol(materiaId, trimestreId));
     }
     
     // Crear una nueva Actividad (raíz o sub-actividad)
@@ -96,22 +116,14 @@ public class ActividadController {
         }
 
         // --- Validación de Ponderación ---
-        if (parent == null) { // Solo se valida en actividades raíz
-            BigDecimal totalPonderacion = actividadRepository.sumPonderacionOfRootActivities(request.getMateriaId(), request.getTrimestreId());
-            if (totalPonderacion == null) {
-                totalPonderacion = BigDecimal.ZERO;
-            }
-            // Si la suma actual + la nueva supera 100...
-            if (totalPonderacion.add(request.getPonderacion()).compareTo(new BigDecimal("100.00")) > 0) {
+        // Se reserva la ponderación con un UPDATE condicional: dos creaciones simultáneas no pueden pasar el tope
+        if (parent == null) { // Las actividades raíz no pueden sumar más de 100
+            if (!presupuestoPonderacionService.reservarPrincipal(materia.getId(), trimestre.getId(), request.getPonderacion())) {
+                 BigDecimal totalPonderacion = presupuestoPonderacionService.usadoPrincipales(materia.getId(), trimestre.getId());
                  return ResponseEntity.badRequest().body("La ponderación total no puede exceder el 100%. Ponderación actual: " + totalPonderacion + "%");
-
             }
         } else { // Si es una sub-actividad, la suma de hermanas no debe pasar la ponderación del padre
-            BigDecimal totalPonderacionHijas = parent.getSubActividades().stream()
-                .map(Actividad::getPonderacion)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            if (totalPonderacionHijas.add(request.getPonderacion()).compareTo(parent.getPonderacion()) > 0) {
+            if (!presupuestoPonderacionService.reservarHija(parent, request.getPonderacion())) {
                 return ResponseEntity.badRequest().body("La suma de ponderaciones de las sub-actividades no puede exceder la ponderación del padre (" + parent.getPonderacion() + "%).");
             }
         }
@@ -147,28 +159,24 @@ public class ActividadController {
         }
         
         // --- Validación de Ponderación ---
+        // Solo se reserva (o devuelve) la diferencia con la ponderación actual
+        BigDecimal diferencia = request.getPonderacion().subtract(actividad.getPonderacion());
         if (actividad.getParent() == null) { // Es una actividad raíz
-            BigDecimal totalPonderacion = actividadRepository.sumPonderacionOfRootActivities(request.getMateriaId(), request.getTrimestreId());
-             if (totalPonderacion == null) {
-                totalPonderacion = BigDecimal.ZERO;
-            }
-            // Restamos la ponderación original de la actividad que se edita
-            totalPonderacion = totalPonderacion.subtract(actividad.getPonderacion());
-            
-            // Si la suma (sin contar la actividad actual) + la nueva ponderación supera 100...
-            if (totalPonderacion.add(request.getPonderacion()).compareTo(new BigDecimal("100.00")) > 0) {
+            if (!presupuestoPonderacionService.reservarPrincipal(actividad.getMateria().getId(), actividad.getTrimestre().getId(), diferencia)) {
                  return ResponseEntity.badRequest().body("La ponderación total no puede exceder el 100%.");
             }
         } else { // Es una sub-actividad
-            BigDecimal totalPonderacionHijas = actividad.getParent().getSubActividades().stream()
-                .filter(hija -> !hija.getId().equals(actividad.getId())) // Excluir la actual
-                .map(Actividad::getPonderacion)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            if (totalPonderacionHijas.add(request.getPonderacion()).compareTo(actividad.getParent().getPonderacion()) > 0) {
+            if (!presupuestoPonderacionService.reservarHija(actividad.getParent(), diferencia)) {
                 return ResponseEntity.badRequest().body("La suma de ponderaciones de las sub-actividades no puede exceder la ponderación del padre.");
             }
         }
+        // Si tiene sub-actividades, su tope cambia con ella
+        if (actividad.getSubActividades() != null && !actividad.getSubActividades().isEmpty()
+                && !presupuestoPonderacionService.cambiarTopeHijas(actividad, request.getPonderacion())) {
+            // Lo reservado arriba se deshace con la transacción
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.badRequest().body("La ponderación no puede quedar por debajo de la suma de sus sub-actividades.");
+        }
 
 
         actividad.setNombre(request.getNombre());
@@ -177,13 +185,18 @@ public class ActividadController {
         actividad.setPromedia(request.isPromedia());
         // No se debería poder cambiar de materia o trimestre, ni de padre.
 
-        return ResponseEntity.ok(actividadRepository.save(actividad));
+        Actividad guardada = actividadRepository.save(actividad);
+        // La ponderación o "promedia" pudieron cambiar: se recalculan los promedios de la materia en el trimestre
+        promedioTrimestreService.recalcularCeldas(actividad.getMateria().getId(), actividad.getTrimestre().getId(), null);
+        // La ponderación pudo cambiar: los boletines de quienes tienen nota en ella ya no son válidos
+        boletinCache.invalidar(calificacionRepository.findEstudianteIdsByActividadId(actividad.getId()));
+        return ResponseEntity.ok(guardada);
     }
 
-    // Eliminar una Actividad y sus calificaciones asociadas
+    // Eliminar una Actividad con todas sus sub-actividades y las calificaciones de todas ellas
     @DeleteMapping("/{id}")
     @Transactional
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
+    public ResponseEntity<?> delete(@PathVariable Long id) {
         if (!actividadRepository.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
@@ -194,32 +207,131 @@ public class ActividadController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        // 1. Eliminar calificaciones asociadas
-        calificacionRepository.deleteByActividadId(id);
-        
-        // 2. Eliminar la actividad
-        actividadRepository.deleteById(id);
-        
-        return ResponseEntity.noContent().build();
+        // Su ponderación vuelve a quedar libre
+        if (actividad.getParent() == null) {
+            presupuestoPonderacionService.reservarPrincipal(actividad.getMateria().getId(), actividad.getTrimestre().getId(), actividad.getPonderacion().negate());
+        } else {
+            presupuestoPonderacionService.reservarHija(actividad.getParent(), actividad.getPonderacion().negate());
+        }
+
+        // 1. Eliminar el sub-árbol completo y sus calificaciones (quedan en el historial como borradas por este usuario)
+        historialCalificacionService.registrarAutor();
+        EliminacionActividadService.Resultado eliminado = eliminacionActividadService.eliminarSubarbol(id);
+
+        // 2. Recalcular los promedios de la materia en el trimestre sin esas actividades
+        promedioTrimestreService.recalcularCeldas(actividad.getMateria().getId(), actividad.getTrimestre().getId(), null);
+
+        // 3. Los boletines de quienes tenían nota en alguna de ellas dejan de ser válidos
+        boletinCache.invalidar(eliminado.estudianteIds());
+
+        return ResponseEntity.ok(Map.of("actividades", eliminado.actividades(), "calificaciones", eliminado.calificaciones()));
     }
 
-    // Endpoint para Sincronización Total
-    @GetMapping("/all")
-    public ResponseEntity<List<Actividad>> getAll() {
+    // Copiar el plan de actividades de una materia de un trimestre a otro (el destino debe estar vacío)
+    @PostMapping("/clonar")
+    public ResponseEntity<?> clonar(@RequestBody ClonarRequest request) {
+        if (request.getMateriaId() == null || request.getTrimestreOrigenId() == null || request.getTrimestreDestinoId() == null) {
+            return ResponseEntity.badRequest().body("Debe proporcionar materiaId, trimestreOrigenId y trimestreDestinoId");
+        }
+        Materia materia = materiaRepository.findById(request.getMateriaId())
+                .orElseThrow(() -> new RuntimeException("Materia no encontrada"));
+        if (!canAccessMateria(getCurrentUser(), materia)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        var origen = trimestreRepository.findById(request.getTrimestreOrigenId())
+                .orElseThrow(() -> new RuntimeException("Trimestre no encontrado"));
+        var destino = trimestreRepository.findById(request.getTrimestreDestinoId())
+                .orElseThrow(() -> new RuntimeException("Trimestre no encontrado"));
+
+        try {
+            int creadas = clonacionActividadService.clonarTrimestre(materia.getId(), origen, destino);
+            return ResponseEntity.ok(Map.of("actividades", creadas));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // Otra operación creó actividades en el destino al mismo tiempo
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("El trimestre de destino cambió mientras se copiaba; intente de nuevo");
+        }
+    }
+
+    // Copiar los planes de un año escolar al siguiente: una materia, o todas las del profesor (ADMIN: todas) si no se indica
+    @PostMapping("/clonar-anio")
+    public ResponseEntity<?> clonarAnio(@RequestBody ClonarAnioRequest request) {
+        if (request.getAnioOrigen() == null || request.getAnioDestino() == null) {
+            return ResponseEntity.badRequest().body("Debe proporcionar anioOrigen y anioDestino");
+        }
         Usuario user = getCurrentUser();
-        List<Actividad> allActivities = actividadRepository.findAll();
-        
-        if (user.getRole() == Role.ADMIN) {
-             return ResponseEntity.ok(allActivities);
+
+        List<Long> materiaIds;
+        if (request.getMateriaId() != null) {
+            Materia materia = materiaRepository.findById(request.getMateriaId())
+                    .orElseThrow(() -> new RuntimeException("Materia no encontrada"));
+            if (!canAccessMateria(user, materia)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            materiaIds = List.of(materia.getId());
         } else {
-             List<Actividad> filtered = allActivities.stream()
-                .filter(a -> canAccessMateria(user, a.getMateria()))
-                .collect(Collectors.toList());
-             return ResponseEntity.ok(filtered);
+            List<Materia> materias = user.getRole() == Role.ADMIN ? materiaRepository.findAll() : materiaRepository.findByProfesorId(user.getId());
+            materiaIds = materias.stream().map(Materia::getId).toList();
+        }
+
+        try {
+            ClonacionActividadService.Resultado resultado = clonacionActividadService.clonarAnio(materiaIds, request.getAnioOrigen(), request.getAnioDestino());
+            return ResponseEntity.ok(Map.of(
+                    "actividades", resultado.actividades(),
+                    "trimestres", resultado.trimestres(),
+                    "omitidos", resultado.omitidos()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Un trimestre de destino cambió mientras se copiaba; intente de nuevo");
+        }
+    }
+
+    // Endpoint para Sincronización (solo actividades de materias del profesor; ADMIN ve todas)
+    // Sin parámetros: todas las actividades vigentes, planas.
+    // Con ?since=<cursor>&limite=: solo lo que cambió o se borró después del cursor (usar "0" la primera vez),
+    // paginado por versión; la respuesta trae el cursor 'siguiente' y si hay más páginas.
+    @GetMapping("/all")
+    public ResponseEntity<?> getAll(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limite
+    ) {
+        Usuario user = getCurrentUser();
+        boolean esAdmin = user.getRole() == Role.ADMIN;
+
+        if (since == null && limite == null) {
+            return ResponseEntity.ok(cambiosActividadService.obtenerTodas(esAdmin, user.getId()));
+        }
+        int tamano = limite != null ? limite : SincronizacionCambios.LIMITE_POR_DEFECTO;
+        if (tamano <= 0 || tamano > SincronizacionCambios.LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().body("limite debe estar entre 1 y " + SincronizacionCambios.LIMITE_MAXIMO);
+        }
+
+        try {
+            return ResponseEntity.ok(cambiosActividadService.obtenerCambios(since, tamano, esAdmin, user.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     // --- DTO para Peticiones ---
+    @Data
+    public static class ClonarRequest {
+        private Long materiaId;
+        private Long trimestreOrigenId;
+        private Long trimestreDestinoId;
+    }
+
+    @Data
+    public static class ClonarAnioRequest {
+        private Long materiaId; // Opcional
+        private Integer anioOrigen;
+        private Integer anioDestino;
+    }
+
     @Data
     @lombok.AllArgsConstructor
     @lombok.NoArgsConstructor
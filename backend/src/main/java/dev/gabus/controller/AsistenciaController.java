@@ -22,10 +22,12 @@ import org.springframework.web.bind.annotation.RestController;
 import dev.gabus.dto.Asistencia.Asistencia;
 import dev.gabus.dto.Asistencia.AsistenciaRepository;
 import dev.gabus.dto.Asistencia.EstadoAsistencia;
+import dev.gabus.dto.Estudiante.DirectorioNfc;
 import dev.gabus.dto.Estudiante.Estudiante;
 import dev.gabus.dto.Estudiante.EstudianteRepository;
 import dev.gabus.dto.Grado.Grado;
 import dev.gabus.dto.Grado.GradoRepository;
+import dev.gabus.dto.Progreso.ProgresoCache;
 import dev.gabus.dto.Usuario.Role;
 import dev.gabus.dto.Usuario.Usuario;
 import dev.gabus.dto.Usuario.UsuarioRepository;
@@ -41,6 +43,8 @@ public class AsistenciaController {
     private final EstudianteRepository estudianteRepository;
     private final GradoRepository gradoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ProgresoCache progresoCache;
+    private final DirectorioNfc directorioNfc;
 
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -57,26 +61,31 @@ public class AsistenciaController {
     @PostMapping("/registrar")
     public ResponseEntity<?> registrarAsistencia(@RequestBody AsistenciaRequest request) {
         Usuario user = getCurrentUser();
-        Optional<Estudiante> estudianteOpt;
+        Optional<DirectorioNfc.Tarjeta> tarjeta;
 
+        // El toque se resuelve y se valida en memoria; un tag desconocido no llega a la base de datos
         if (request.getNfcId() != null) {
-            estudianteOpt = estudianteRepository.findByNfcId(request.getNfcId());
+            tarjeta = directorioNfc.buscar(request.getNfcId());
         } else if (request.getEstudianteId() != null) {
-            estudianteOpt = estudianteRepository.findById(request.getEstudianteId());
+            tarjeta = directorioNfc.buscarEstudiante(request.getEstudianteId());
         } else {
             return ResponseEntity.badRequest().body("Debe proporcionar estudianteId o nfcId");
         }
 
-        if (estudianteOpt.isEmpty()) {
+        if (tarjeta.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        Estudiante estudiante = estudianteOpt.get();
-
-        if (estudiante.getGrado() == null || !canAccessGrado(user, estudiante.getGrado())) {
+        if (user.getRole() != Role.ADMIN && !tarjeta.get().esDelProfesor(user.getId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
+        Optional<Estudiante> estudianteOpt = estudianteRepository.findById(tarjeta.get().estudianteId());
+        if (estudianteOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Estudiante estudiante = estudianteOpt.get();
+
         LocalDate fecha = request.getFecha() != null ? request.getFecha() : LocalDate.now();
         LocalTime hora = request.getHora() != null ? request.getHora() : LocalTime.now();
 
@@ -96,7 +105,9 @@ public class AsistenciaController {
                     .build();
         }
 
-        return ResponseEntity.ok(asistenciaRepository.save(asistencia));
+        Asistencia guardada = asistenciaRepository.save(asistencia);
+        progresoCache.invalidar(estudiante.getId());
+        return ResponseEntity.ok(guardada);
     }
 
     @GetMapping("/grado/{gradoId}")
@@ -1,10 +1,21 @@
 package dev.gabus.controller;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,10 +26,27 @@ import org.springframework.web.bind.annotation.RestController;
 
 import dev.gabus.dto.Actividad.ActividadRepository;
 import dev.gabus.dto.Calificacion.Calificacion;
+import dev.gabus.dto.Calificacion.CambiosCalificacionService;
+import dev.gabus.dto.Calificacion.HistorialCalificacionDTO;
+import dev.gabus.dto.Calificacion.HistorialCalificacionService;
+import dev.gabus.dto.Calificacion.HistorialCalificacionService.UbicacionCelda;
 import dev.gabus.dto.Calificacion.CalificacionRepository;
+import dev.gabus.dto.Calificacion.LibroNotasDTO;
+import dev.gabus.dto.Calificacion.LibroNotasService;
 import dev.gabus.dto.Calificacion.PlanillaItemDTO;
-import dev.gabus.dto.Estudiante.Estudiante;
+import dev.gabus.dto.Calificacion.PlanillaService;
+import dev.gabus.dto.Calificacion.PlanillaService.NotaPlanilla;
 import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Grado.Grado;
+import dev.gabus.dto.Grado.GradoRepository;
+import dev.gabus.dto.Materia.Materia;
+import dev.gabus.dto.Materia.MateriaRepository;
+import dev.gabus.dto.Promedio.PromedioTrimestreService;
+import dev.gabus.dto.Reporte.BoletinCache;
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios;
+import dev.gabus.dto.Usuario.Role;
+import dev.gabus.dto.Usuario.Usuario;
+import dev.gabus.dto.Usuario.UsuarioRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
@@ -29,6 +57,50 @@ public class CalificacionController {
     private final CalificacionRepository calificacionRepository;
     private final EstudianteRepository estudianteRepository;
     private final ActividadRepository actividadRepository;
+    private final MateriaRepository materiaRepository;
+    private final GradoRepository gradoRepository;
+    private final BoletinCache boletinCache;
+    private final PlanillaService planillaService;
+    private final LibroNotasService libroNotasService;
+    private final PromedioTrimestreService promedioTrimestreService;
+    private final UsuarioRepository usuarioRepository;
+    private final CambiosCalificacionService cambiosCalificacionService;
+    private final HistorialCalificacionService historialCalificacionService;
+
+    private Usuario getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        return usuarioRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    }
+
+    private boolean canAccessMateria(Usuario user, Materia materia) {
+        if (user.getRole() == Role.ADMIN) return true;
+        if (materia.getProfesor() == null) return false;
+        return materia.getProfesor().getId().equals(user.getId());
+    }
+
+    private boolean canAccessGrado(Usuario user, Grado grado) {
+        if (user.getRole() == Role.ADMIN) return true;
+        if (grado == null || grado.getProfesor() == null) return false;
+        return grado.getProfesor().getId().equals(user.getId());
+    }
+
+    // El libro de notas de un grado y materia lo ve el profesor de la materia o el del grado (ADMIN: todos)
+    private boolean canAccessLibro(Usuario user, Long gradoId, Long materiaId) {
+        Materia materia = materiaRepository.findById(materiaId).orElseThrow(() -> new RuntimeException("Materia no encontrada"));
+        Grado grado = gradoRepository.findById(gradoId).orElseThrow(() -> new RuntimeException("Grado no encontrado"));
+        return canAccessMateria(user, materia) || canAccessGrado(user, grado);
+    }
+
+    // Historial de una celda: mismo criterio que el libro, con el grado y la materia guardados en el historial
+    // (la actividad o el estudiante pueden ya no existir; entonces solo cuenta lo que quede de ellos)
+    private boolean canAccessCelda(Usuario user, UbicacionCelda celda) {
+        if (user.getRole() == Role.ADMIN) return true;
+        boolean porMateria = celda.materiaId() != null && materiaRepository.findById(celda.materiaId())
+                .map(materia -> canAccessMateria(user, materia)).orElse(false);
+        return porMateria || (celda.gradoId() != null && gradoRepository.findById(celda.gradoId())
+                .map(grado -> canAccessGrado(user, grado)).orElse(false));
+    }
 
     // 1. Obtener notas de una actividad específica (Para ver rendimiento del grupo)
     @GetMapping("/actividad/{actividadId}")
@@ -44,6 +116,7 @@ public class CalificacionController {
 
     // 3. Poner o Actualizar una nota (Upsert)
     @PostMapping
+    @Transactional
     public ResponseEntity<?> guardarCalificacion(@RequestBody CalificacionRequest request) {
         
         // Validar existencia de estudiante y actividad
@@ -74,48 +147,137 @@ public class CalificacionController {
                     .build();
         }
 
-        return ResponseEntity.ok(calificacionRepository.save(calificacion));
+        historialCalificacionService.registrarAutor();
+        Calificacion guardada = calificacionRepository.save(calificacion);
+        promedioTrimestreService.recalcular(request.getActividadId(), List.of(request.getEstudianteId()));
+        boletinCache.invalidar(request.getEstudianteId());
+        return ResponseEntity.ok(guardada);
     }
 
-    // 4. Obtener planilla de calificaciones para una actividad y grado
+    // 3b. Guardar una planilla completa (todas las notas de una actividad) en una sola operación
+    @PostMapping("/batch")
+    public ResponseEntity<?> guardarPlanilla(@RequestBody PlanillaRequest request) {
+        if (request.getActividadId() == null || request.getCalificaciones() == null) {
+            return ResponseEntity.badRequest().body("Debe proporcionar actividadId y calificaciones");
+        }
+
+        List<NotaPlanilla> notas = new ArrayList<>(request.getCalificaciones().size());
+        for (NotaRequest item : request.getCalificaciones()) {
+            if (item.getEstudianteId() == null || item.getNota() == null) {
+                return ResponseEntity.badRequest().body("Cada calificación debe tener estudianteId y nota");
+            }
+            notas.add(new NotaPlanilla(item.getEstudianteId(), item.getNota(), item.getObservacion()));
+        }
+
+        try {
+            Set<Long> estudianteIds = planillaService.guardarPlanilla(request.getActividadId(), notas);
+            boletinCache.invalidar(estudianteIds);
+            return ResponseEntity.ok(Map.of("guardadas", estudianteIds.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 4. Obtener planilla de calificaciones para una actividad y grado (ordenada por apellido)
+    // Paginación opcional: ?limite=50 y, para la siguiente página, despuesDe=<estudianteId de la última fila>
     @GetMapping("/planilla")
     public ResponseEntity<List<PlanillaItemDTO>> obtenerPlanilla(
             @RequestParam Long gradoId,
-            @RequestParam Long actividadId
+            @RequestParam Long actividadId,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) Long despuesDe
     ) {
-        // 1. Obtener todos los estudiantes del grado
-        List<Estudiante> estudiantes = estudianteRepository.findByGrado_Id(gradoId);
-        
-        // 2. Obtener las notas existentes para esa actividad
-        List<Calificacion> notasExistentes = calificacionRepository.findByActividadId(actividadId);
-
-        // 3. Fusionar las listas (Estudiantes + Notas)
-        List<PlanillaItemDTO> planilla = new ArrayList<>();
-
-        for (Estudiante est : estudiantes) {
-            // Buscamos si este estudiante ya tiene nota en la lista de notas
-            Calificacion notaEncontrada = notasExistentes.stream()
-                    .filter(n -> n.getEstudiante().getId().equals(est.getId()))
-                    .findFirst()
-                    .orElse(null);
-
-            planilla.add(PlanillaItemDTO.builder()
-                    .estudianteId(est.getId())
-                    .nombreEstudiante(est.getNombres())
-                    .apellidoEstudiante(est.getApellidos())
-                    .calificacionId(notaEncontrada != null ? notaEncontrada.getId() : null)
-                    .nota(notaEncontrada != null ? notaEncontrada.getNota() : null)
-                    .observacion(notaEncontrada != null ? notaEncontrada.getObservacion() : null)
-                    .build());
+        if (limite != null && limite <= 0) {
+            return ResponseEntity.badRequest().build();
         }
+        Pageable pagina = limite != null ? PageRequest.of(0, limite) : Pageable.unpaged();
+
+        List<PlanillaItemDTO> planilla = despuesDe == null
+                ? calificacionRepository.findPlanilla(gradoId, actividadId, pagina)
+                : calificacionRepository.findPlanillaDespuesDe(gradoId, actividadId, despuesDe, pagina);
 
         return ResponseEntity.ok(planilla);
     }
 
-    // Endpoint para Sincronización Total
+    // 5. Libro de notas completo (estudiantes × actividades) de un grado, materia y trimestre, con el total de cada estudiante
+    @GetMapping("/libro")
+    public ResponseEntity<LibroNotasDTO> obtenerLibro(
+            @RequestParam Long gradoId,
+            @RequestParam Long materiaId,
+            @RequestParam Long trimestreId
+    ) {
+        if (!canAccessLibro(getCurrentUser(), gradoId, materiaId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(libroNotasService.obtenerLibro(gradoId, materiaId, trimestreId));
+    }
+
+    // 6. Recalcular desde cero los promedios por trimestre (tabla promedio_trimestre). Solo ADMIN.
+    @PostMapping("/promedios/reconstruir")
+    public ResponseEntity<?> reconstruirPromedios() {
+        if (getCurrentUser().getRole() != Role.ADMIN) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        // Los boletines en caché no se tocan: su huella cambia sola si los promedios cambiaron
+        int filas = promedioTrimestreService.reconstruir();
+        return ResponseEntity.ok(Map.of("filas", filas));
+    }
+
+    // 7. Historial de una nota (todas sus versiones, con autor y fecha)
+    @GetMapping("/historial")
+    public ResponseEntity<List<HistorialCalificacionDTO>> obtenerHistorial(
+            @RequestParam Long estudianteId,
+            @RequestParam Long actividadId
+    ) {
+        Optional<UbicacionCelda> celda = historialCalificacionService.ubicacionDeCelda(estudianteId, actividadId);
+        if (celda.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (!canAccessCelda(getCurrentUser(), celda.get())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(historialCalificacionService.historialDeCelda(estudianteId, actividadId));
+    }
+
+    // 8. Notas de un grado, materia y trimestre tal como estaban al final del día 'fecha' (yyyy-MM-dd)
+    @GetMapping("/historial/libro")
+    public ResponseEntity<List<HistorialCalificacionDTO>> obtenerLibroAFecha(
+            @RequestParam Long gradoId,
+            @RequestParam Long materiaId,
+            @RequestParam Long trimestreId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha
+    ) {
+        if (!canAccessLibro(getCurrentUser(), gradoId, materiaId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(historialCalificacionService.libroAFecha(gradoId, materiaId, trimestreId, fecha));
+    }
+
+    // Endpoint para Sincronización (solo notas de materias del profesor; ADMIN ve todas)
+    // Sin parámetros: todas las notas vigentes, planas.
+    // Con ?since=<cursor>&limite=: solo lo que cambió o se borró después del cursor (usar "0" la primera vez),
+    // paginado por versión; la respuesta trae el cursor 'siguiente' y si hay más páginas.
     @GetMapping("/all")
-    public ResponseEntity<List<Calificacion>> getAll() {
-        return ResponseEntity.ok(calificacionRepository.findAll());
+    public ResponseEntity<?> getAll(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limite
+    ) {
+        Usuario user = getCurrentUser();
+        boolean esAdmin = user.getRole() == Role.ADMIN;
+
+        if (since == null && limite == null) {
+            return ResponseEntity.ok(cambiosCalificacionService.obtenerTodas(esAdmin, user.getId()));
+        }
+        int tamano = limite != null ? limite : SincronizacionCambios.LIMITE_POR_DEFECTO;
+        if (tamano <= 0 || tamano > SincronizacionCambios.LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().body("limite debe estar entre 1 y " + SincronizacionCambios.LIMITE_MAXIMO);
+        }
+
+        try {
+            return ResponseEntity.ok(cambiosCalificacionService.obtenerCambios(since, tamano, esAdmin, user.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
 
@@ -127,4 +289,17 @@ public class CalificacionController {
         private BigDecimal nota;       // Ej: 85.50
         private String observacion;    // Ej: "Entregó tarde"
     }
+
+    @Data
+    public static class PlanillaRequest {
+        private Long actividadId;
+        private List<NotaRequest> calificaciones;
+    }
+
+    @Data
+    public static class NotaRequest {
+        private Long estudianteId;
+        private BigDecimal nota;
+        private String observacion;
+    }
 }
@@ -1,12 +1,18 @@
 package dev.gabus.controller;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,16 +22,30 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import dev.gabus.dto.Estudiante.CodigoProgresoService;
+import dev.gabus.dto.Estudiante.DirectorioNfc;
 import dev.gabus.dto.Estudiante.Estudiante;
+import dev.gabus.dto.Estudiante.EstudianteListadoDTO;
 import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Estudiante.ImportacionEstudianteService;
+import dev.gabus.dto.Estudiante.ImportacionEstudiantesDTO;
+import dev.gabus.dto.Estudiante.IndiceBusquedaEstudiantes;
+import dev.gabus.dto.Estudiante.ListadoEstudianteService;
+import dev.gabus.dto.Estudiante.ResultadoBusquedaEstudianteDTO;
 import dev.gabus.dto.Grado.Grado;
 import dev.gabus.dto.Grado.GradoRepository;
+import dev.gabus.dto.Progreso.LimitadorPorIp;
+import dev.gabus.dto.Progreso.ProgresoCache;
+import dev.gabus.dto.Reporte.BoletinCache;
 import dev.gabus.dto.Usuario.Role;
 import dev.gabus.dto.Usuario.Usuario;
 import dev.gabus.dto.Usuario.UsuarioRepository;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
@@ -38,6 +58,18 @@ public class EstudianteController {
     private final EstudianteRepository estudianteRepository;
     private final GradoRepository gradoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final BoletinCache boletinCache;
+    private final ListadoEstudianteService listadoEstudianteService;
+    private final ImportacionEstudianteService importacionEstudianteService;
+    private final CodigoProgresoService codigoProgresoService;
+    private final IndiceBusquedaEstudiantes indiceBusquedaEstudiantes;
+    private final ProgresoCache progresoCache;
+    private final LimitadorPorIp limitadorPorIp;
+    private final DirectorioNfc directorioNfc;
+
+    // Segundos que el navegador puede reusar la página de progreso sin volver a preguntar
+    @Value("${progreso.cache.max-age-segundos:30}")
+    private long progresoMaxAgeSegundos;
 
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -52,19 +84,34 @@ public class EstudianteController {
         return grado.getProfesor().getId().equals(user.getId());
     }
 
+    // Estudiantes de los grados del profesor (ADMIN: todos), filtrados en la consulta.
+    // Filtros opcionales: gradoId y nombre. Paginación opcional: ?limite=50 y, para la siguiente
+    // página, despuesDe=<id del último estudiante>, en orden de apellidos, nombres.
     @GetMapping
-    public ResponseEntity<List<Estudiante>> getAllEstudiantes() {
+    public ResponseEntity<List<EstudianteListadoDTO>> getAllEstudiantes(
+            @RequestParam(required = false) Long gradoId,
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) Long despuesDe
+    ) {
+        return listar(gradoId, nombre, false, limite, despuesDe);
+    }
+
+    // Búsqueda para autocompletar: nombres, apellidos, código de progreso o email, sin importar acentos.
+    // Los 'limite' mejores (por defecto 10) entre los estudiantes de los grados del profesor (ADMIN: todos).
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarEstudiantes(@RequestParam String q, @RequestParam(required = false) Integer limite) {
+        if (limite != null && (limite <= 0 || limite > IndiceBusquedaEstudiantes.LIMITE_MAXIMO)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "El límite debe estar entre 1 y " + IndiceBusquedaEstudiantes.LIMITE_MAXIMO));
+        }
         Usuario user = getCurrentUser();
-        List<Estudiante> allStudents = estudianteRepository.findAll();
-
-        if (user.getRole() == Role.ADMIN) {
-            return ResponseEntity.ok(allStudents);
-        } else {
-            List<Estudiante> filtered = allStudents.stream()
-                .filter(s -> s.getGrado() != null && canAccessGrado(user, s.getGrado()))
-                .collect(Collectors.toList());
-            return ResponseEntity.ok(filtered);
+        Long profesorId = user.getRole() == Role.ADMIN ? null : user.getId();
+        Optional<List<ResultadoBusquedaEstudianteDTO>> resultado = indiceBusquedaEstudiantes.buscar(q, profesorId,
+                limite != null ? limite : IndiceBusquedaEstudiantes.LIMITE_POR_DEFECTO);
+        if (resultado.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", "El índice de búsqueda se está cargando, intente de nuevo en unos segundos."));
         }
+        return ResponseEntity.ok(resultado.get());
     }
 
     @GetMapping("/grado/{gradoId}")
@@ -114,30 +161,80 @@ public class EstudianteController {
         return ResponseEntity.ok(estudiante);
     }
     
+    // Página pública de progreso (sin sesión): grado, tokens, promedios y asistencia del estudiante.
+    // Sale ya armada de ProgresoCache; si el navegador manda el ETag que tiene (If-None-Match) y no cambió, 304 sin cuerpo.
     @GetMapping("/progreso/{codigo}")
-    public ResponseEntity<Estudiante> getEstudianteByCodigoProgreso(@PathVariable String codigo) {
-        // This method does not check for user permissions based on Grado, 
-        // assuming direct code access bypasses standard grade-based access control.
-        // If permission checks are needed here, they should be added.
-        return estudianteRepository.findByCodigoProgreso(codigo)
-            .map(ResponseEntity::ok)
-            .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProgresoByCodigo(@PathVariable String codigo, HttpServletRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderProgreso(codigo, request, ifNoneMatch, false);
     }
 
-    @GetMapping("/sin-nfc")
-    public ResponseEntity<List<Estudiante>> getEstudiantesWithoutNfcId() {
-        Usuario user = getCurrentUser();
-        List<Estudiante> students = estudianteRepository.findByNfcIdIsNull();
-        
-        if (user.getRole() == Role.ADMIN) {
-             return ResponseEntity.ok(students);
+    // Promedios por materia y trimestre del estudiante (una fila por materia y trimestre, sin recorrer sus notas)
+    @GetMapping("/progreso/{codigo}/promedios")
+    public ResponseEntity<byte[]> getPromediosByCodigoProgreso(@PathVariable String codigo, HttpServletRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderProgreso(codigo, request, ifNoneMatch, true);
+    }
+
+    private ResponseEntity<byte[]> responderProgreso(String codigo, HttpServletRequest request, String ifNoneMatch, boolean soloPromedios) {
+        // Los códigos se prueban sin sesión: cada IP tiene un cupo de consultas
+        if (!limitadorPorIp.intentar(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(limitadorPorIp.segundosParaReintentar()))
+                    .build();
+        }
+        Optional<ProgresoCache.Foto> foto = progresoCache.obtener(codigo);
+        if (foto.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = soloPromedios ? foto.get().etagPromedios() : foto.get().etag();
+        CacheControl cacheControl = CacheControl.maxAge(progresoMaxAgeSegundos, TimeUnit.SECONDS).cachePrivate().mustRevalidate();
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(soloPromedios ? foto.get().jsonPromedios() : foto.get().json());
+    }
+
+    // If-None-Match puede traer varios ETags, "*" o ETags débiles (W/"...") si un proxy comprimió la respuesta
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
         }
-        else {
-             List<Estudiante> filtered = students.stream()
-                .filter(s -> s.getGrado() != null && canAccessGrado(user, s.getGrado()))
-                .collect(Collectors.toList());
-             return ResponseEntity.ok(filtered);
+        for (String candidato : ifNoneMatch.split(",")) {
+            String limpio = candidato.trim();
+            if (limpio.startsWith("W/")) {
+                limpio = limpio.substring(2);
+            }
+            if (limpio.equals("*") || limpio.equals(etag)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    // Igual que el listado general, solo estudiantes sin tarjeta NFC asignada
+    @GetMapping("/sin-nfc")
+    public ResponseEntity<List<EstudianteListadoDTO>> getEstudiantesWithoutNfcId(
+            @RequestParam(required = false) Long gradoId,
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) Long despuesDe
+    ) {
+        return listar(gradoId, nombre, true, limite, despuesDe);
+    }
+
+    private ResponseEntity<List<EstudianteListadoDTO>> listar(Long gradoId, String nombre, boolean soloSinNfc, Integer limite, Long despuesDe) {
+        if (limite != null && limite <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Usuario user = getCurrentUser();
+        Long profesorId = user.getRole() == Role.ADMIN ? null : user.getId();
+        return ResponseEntity.ok(listadoEstudianteService.listar(profesorId, gradoId, nombre, soloSinNfc, despuesDe, limite));
     }
 
     @PostMapping
@@ -155,10 +252,15 @@ public class EstudianteController {
                 .apellidos(request.getApellidos())
                 .email(request.getEmail())
                 .grado(grado)
-                .codigoProgreso(request.getCodigoProgreso())
+                // Sin código en la solicitud, lo asigna el servidor
+                .codigoProgreso(request.getCodigoProgreso() == null || request.getCodigoProgreso().isBlank()
+                        ? codigoProgresoService.siguiente() : request.getCodigoProgreso())
                 .build();
         try {
-            return ResponseEntity.ok(estudianteRepository.save(estudiante));
+            Estudiante guardado = estudianteRepository.save(estudiante);
+            indiceBusquedaEstudiantes.actualizar(guardado);
+            directorioNfc.actualizar(guardado);
+            return ResponseEntity.ok(guardado);
         } catch (DataIntegrityViolationException e) {
             // Check if the conflict is due to codigoProgreso or other unique constraint
             if (e.getMessage().contains("codigo_progreso")) {
@@ -169,6 +271,29 @@ public class EstudianteController {
         }
     }
 
+    /**
+     * Alta masiva. El cuerpo es el archivo tal cual: CSV (Content-Type text/csv, encabezado
+     * nombres, apellidos, email, gradoId; separador ',' o ';') o NDJSON (application/x-ndjson).
+     * Los códigos de progreso los asigna el servidor. Responde el resultado de cada fila.
+     */
+    @PostMapping("/importar")
+    public ResponseEntity<?> importarEstudiantes(HttpServletRequest request) {
+        Usuario user = getCurrentUser();
+        Long profesorId = user.getRole() == Role.ADMIN ? null : user.getId();
+        String contentType = request.getContentType() != null ? request.getContentType().toLowerCase() : "";
+        try {
+            ImportacionEstudiantesDTO resultado = contentType.contains("json")
+                    ? importacionEstudianteService.importarNdjson(request.getInputStream(), profesorId)
+                    : importacionEstudianteService.importarCsv(request.getInputStream(), profesorId);
+            System.out.println("Importación de estudiantes: " + resultado.getImportados() + " importados, " + resultado.getErrores() + " con error");
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "No se pudo leer el archivo: " + e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateEstudiante(@PathVariable Long id, @RequestBody EstudianteRequest request) {
         Usuario user = getCurrentUser();
@@ -205,7 +330,12 @@ public class EstudianteController {
             }
             
             try {
-                return ResponseEntity.ok(estudianteRepository.save(estudiante));
+                Estudiante actualizado = estudianteRepository.save(estudiante);
+                boletinCache.invalidar(id);
+                progresoCache.invalidar(id);
+                indiceBusquedaEstudiantes.actualizar(actualizado);
+                directorioNfc.actualizar(actualizado);
+                return ResponseEntity.ok(actualizado);
             } catch (DataIntegrityViolationException e) {
                 // Check if the conflict is due to codigoProgreso or other unique constraint
                 if (e.getMessage().contains("codigo_progreso")) {
@@ -232,6 +362,9 @@ public class EstudianteController {
             }
             
             estudianteRepository.deleteById(id);
+            indiceBusquedaEstudiantes.quitar(id);
+            progresoCache.invalidar(id);
+            directorioNfc.quitar(id);
             return ResponseEntity.noContent().build();
         }).orElse(ResponseEntity.notFound().build());
     }
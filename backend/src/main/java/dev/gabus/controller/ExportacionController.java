@@ -0,0 +1,73 @@
+package dev.gabus.controller;
+
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import dev.gabus.dto.Exportacion.ExportacionService;
+import dev.gabus.dto.Usuario.Role;
+import dev.gabus.dto.Usuario.Usuario;
+import dev.gabus.dto.Usuario.UsuarioRepository;
+import lombok.RequiredArgsConstructor;
+
+// Exportación completa (respaldos y analítica). Solo ADMIN.
+@RestController
+@RequestMapping("/api/exportacion")
+@RequiredArgsConstructor
+public class ExportacionController {
+    private final ExportacionService exportacionService;
+    private final UsuarioRepository usuarioRepository;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private Usuario getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        return usuarioRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    }
+
+    // Todas las calificaciones, una por línea: {"id","estudianteId","actividadId","nota","observacion"}
+    @GetMapping("/calificaciones")
+    public ResponseEntity<StreamingResponseBody> exportarCalificaciones(@RequestParam(defaultValue = "false") boolean gzip) {
+        if (getCurrentUser().getRole() != Role.ADMIN) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return responder("calificaciones", gzip, exportacionService::exportarCalificaciones);
+    }
+
+    // Todas las actividades, una por línea, con parentId para reconstruir el árbol
+    @GetMapping("/actividades")
+    public ResponseEntity<StreamingResponseBody> exportarActividades(@RequestParam(defaultValue = "false") boolean gzip) {
+        if (getCurrentUser().getRole() != Role.ADMIN) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return responder("actividades", gzip, exportacionService::exportarActividades);
+    }
+
+    private ResponseEntity<StreamingResponseBody> responder(String nombre, boolean gzip, StreamingResponseBody exportacion) {
+        StreamingResponseBody cuerpo = out -> {
+            if (gzip) {
+                GZIPOutputStream comprimido = new GZIPOutputStream(out, 64 * 1024);
+                exportacion.writeTo(comprimido);
+                comprimido.finish();
+            } else {
+                exportacion.writeTo(out);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + nombre + (gzip ? ".ndjson.gz" : ".ndjson"))
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : NDJSON)
+                .body(cuerpo);
+    }
+}
@@ -16,8 +16,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import dev.gabus.dto.Estudiante.DirectorioNfc;
+import dev.gabus.dto.Estudiante.IndiceBusquedaEstudiantes;
 import dev.gabus.dto.Grado.Grado;
 import dev.gabus.dto.Grado.GradoRepository;
+import dev.gabus.dto.Progreso.ProgresoCache;
 import dev.gabus.dto.Usuario.Role;
 import dev.gabus.dto.Usuario.Usuario;
 import dev.gabus.dto.Usuario.UsuarioRepository;
@@ -30,6 +33,9 @@ public class GradoController {
 
     private final GradoRepository gradoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final IndiceBusquedaEstudiantes indiceBusquedaEstudiantes;
+    private final ProgresoCache progresoCache;
+    private final DirectorioNfc directorioNfc;
 
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -84,7 +90,10 @@ public class GradoController {
                 grado.setProfesor(profesor);
             }
         }
-        return ResponseEntity.ok(gradoRepository.save(grado));
+        Grado guardado = gradoRepository.save(grado);
+        indiceBusquedaEstudiantes.actualizarGrado(guardado);
+        directorioNfc.actualizarGrado(guardado);
+        return ResponseEntity.ok(guardado);
     }
 
     //Actualizar grado
@@ -119,7 +128,13 @@ public class GradoController {
             }
         }
         
-        return ResponseEntity.ok(gradoRepository.save(grado)); 
+        // El profesor del grado decide qué estudiantes encuentra cada uno en la búsqueda
+        Grado guardado = gradoRepository.save(grado);
+        indiceBusquedaEstudiantes.actualizarGrado(guardado);
+        directorioNfc.actualizarGrado(guardado);
+        // Nivel y sección aparecen en la página de progreso de sus estudiantes
+        progresoCache.invalidarTodo();
+        return ResponseEntity.ok(guardado);
     }
 
     
@@ -141,6 +156,8 @@ public class GradoController {
         }
 
         gradoRepository.deleteById(id);
+        indiceBusquedaEstudiantes.quitarGrado(id);
+        directorioNfc.quitarGrado(id);
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
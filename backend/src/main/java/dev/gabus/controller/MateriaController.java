@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import dev.gabus.dto.Materia.Materia;
 import dev.gabus.dto.Materia.MateriaRepository;
+import dev.gabus.dto.Progreso.ProgresoCache;
 import dev.gabus.dto.Usuario.Role;
 import dev.gabus.dto.Usuario.Usuario;
 import dev.gabus.dto.Usuario.UsuarioRepository;
@@ -29,6 +30,7 @@ import lombok.RequiredArgsConstructor;
 public class MateriaController {
     private final MateriaRepository materiaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ProgresoCache progresoCache;
 
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -84,7 +86,10 @@ public class MateriaController {
             materia.setProfesor(existing.getProfesor());
         }
 
-        return ResponseEntity.ok(materiaRepository.save(materia));
+        Materia guardada = materiaRepository.save(materia);
+        // El nombre de la materia aparece en la página de progreso de todos sus estudiantes
+        progresoCache.invalidarTodo();
+        return ResponseEntity.ok(guardada);
     }
 
     // Eliminar
@@ -106,6 +111,7 @@ public class MateriaController {
         }
 
         materiaRepository.deleteById(id);
+        progresoCache.invalidarTodo();
         return ResponseEntity.noContent().build();
     }
     
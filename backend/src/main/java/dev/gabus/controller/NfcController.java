@@ -1,7 +1,9 @@
 package dev.gabus.controller;
 
+import dev.gabus.dto.Estudiante.DirectorioNfc;
 import dev.gabus.dto.Estudiante.Estudiante;
 import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Progreso.ProgresoCache;
 import dev.gabus.dto.Transaccion.TransaccionToken;
 import dev.gabus.dto.Transaccion.TransaccionToken.TipoTransaccion;
 import dev.gabus.dto.Transaccion.TransaccionTokenRepository;
@@ -10,6 +12,7 @@ import dev.gabus.dto.Usuario.Usuario;
 import dev.gabus.dto.Usuario.UsuarioRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -32,32 +35,39 @@ public class NfcController {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private ProgresoCache progresoCache;
+
+    @Autowired
+    private DirectorioNfc directorioNfc;
+
     private Usuario getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         return usuarioRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
     }
 
-    private boolean canAccessStudent(Usuario user, Estudiante estudiante) {
+    // El permiso sale del directorio NFC: no hace falta cargar el estudiante ni su grado
+    private boolean canAccessStudent(Usuario user, DirectorioNfc.Tarjeta tarjeta) {
         if (user.getRole() == Role.ADMIN) return true;
-        if (estudiante.getGrado() == null || estudiante.getGrado().getProfesor() == null) return false;
-        return estudiante.getGrado().getProfesor().getId().equals(user.getId());
+        return tarjeta.esDelProfesor(user.getId());
     }
 
     // 1. Endpoint para buscar un estudiante por su ID de NFC
     @GetMapping("/estudiante/{nfcId}")
     public ResponseEntity<Estudiante> getEstudianteByNfcId(@PathVariable String nfcId) {
-        Optional<Estudiante> estOpt = estudianteRepository.findByNfcId(nfcId);
-        if (estOpt.isEmpty()) return ResponseEntity.notFound().build();
-        
-        Estudiante estudiante = estOpt.get();
-        Usuario user = getCurrentUser();
+        // Un tag sin asignar (lo más común en la terminal) se responde sin consultar la base de datos
+        Optional<DirectorioNfc.Tarjeta> tarjeta = directorioNfc.buscar(nfcId);
+        if (tarjeta.isEmpty()) return ResponseEntity.notFound().build();
 
-        if (!canAccessStudent(user, estudiante)) {
+        Usuario user = getCurrentUser();
+        if (!canAccessStudent(user, tarjeta.get())) {
              return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        return ResponseEntity.ok(estudiante);
+        return estudianteRepository.findById(tarjeta.get().estudianteId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     // 2. Endpoint para asignar un ID de NFC a un estudiante
@@ -69,22 +79,58 @@ public class NfcController {
         Usuario user = getCurrentUser();
 
         // Validar que el NFC ID no esté ya asignado
-        if (estudianteRepository.findByNfcId(nfcId).isPresent()) {
+        if (directorioNfc.tagAsignado(nfcId)) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("El Tag NFC ya está asignado a otro estudiante.");
         }
 
+        Optional<DirectorioNfc.Tarjeta> tarjeta = directorioNfc.buscarEstudiante(estudianteId);
+        if (tarjeta.isEmpty()) return ResponseEntity.notFound().build();
+        if (!canAccessStudent(user, tarjeta.get())) {
+             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         return estudianteRepository.findById(estudianteId)
                 .map(estudiante -> {
-                    if (!canAccessStudent(user, estudiante)) {
-                         return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                    estudiante.setNfcId(nfcId);
+                    try {
+                        Estudiante guardado = estudianteRepository.save(estudiante);
+                        directorioNfc.actualizar(guardado);
+                        return ResponseEntity.ok(guardado);
+                    } catch (DataIntegrityViolationException e) {
+                        // Otro profesor asignó el mismo tag al mismo tiempo
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body("El Tag NFC ya está asignado a otro estudiante.");
                     }
+                }).orElse(ResponseEntity.notFound().build());
+    }
 
-                    estudiante.setNfcId(nfcId);
-                    estudianteRepository.save(estudiante);
-                    return ResponseEntity.ok(estudiante);
+    // Quitar la tarjeta a un estudiante (tarjeta perdida o para reasignarla)
+    @PostMapping("/desasignar")
+    public ResponseEntity<?> desasignarNfcIdDeEstudiante(@RequestBody Map<String, String> payload) {
+        Long estudianteId = Long.parseLong(payload.get("estudianteId"));
+
+        Optional<DirectorioNfc.Tarjeta> tarjeta = directorioNfc.buscarEstudiante(estudianteId);
+        if (tarjeta.isEmpty()) return ResponseEntity.notFound().build();
+        if (!canAccessStudent(getCurrentUser(), tarjeta.get())) {
+             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return estudianteRepository.findById(estudianteId)
+                .map(estudiante -> {
+                    estudiante.setNfcId(null);
+                    Estudiante guardado = estudianteRepository.save(estudiante);
+                    directorioNfc.actualizar(guardado);
+                    return ResponseEntity.ok(guardado);
                 }).orElse(ResponseEntity.notFound().build());
     }
 
+    // Cuántos estudiantes (de los grados del profesor; ADMIN: todos) todavía no tienen tarjeta
+    @GetMapping("/sin-asignar")
+    public ResponseEntity<?> contarSinTarjeta() {
+        Usuario user = getCurrentUser();
+        Long profesorId = user.getRole() == Role.ADMIN ? null : user.getId();
+        return ResponseEntity.ok(Map.of("cantidad", directorioNfc.cantidadSinTarjeta(profesorId)));
+    }
+
     // 3. Endpoint para realizar una transacción (acumular o canjear tokens)
     @PostMapping("/transaccion")
     public ResponseEntity<?> realizarTransaccion(@RequestBody Map<String, String> payload) {
@@ -93,14 +139,16 @@ public class NfcController {
         String descripcion = payload.get("descripcion");
         TipoTransaccion tipo = TipoTransaccion.valueOf(payload.get("tipo")); // ACUMULACION o CANJE
 
+        Optional<DirectorioNfc.Tarjeta> tarjeta = directorioNfc.buscar(nfcId);
+        if (tarjeta.isEmpty()) return ResponseEntity.notFound().build();
+
         Usuario user = getCurrentUser();
+        if (!canAccessStudent(user, tarjeta.get())) {
+             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
 
-        return estudianteRepository.findByNfcId(nfcId)
+        return estudianteRepository.findById(tarjeta.get().estudianteId())
                 .map(estudiante -> {
-                    if (!canAccessStudent(user, estudiante)) {
-                         return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-                    }
-
                     if (tipo == TipoTransaccion.CANJE && estudiante.getSaldoTokens() < monto) {
                         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Saldo de tokens insuficiente.");
                     }
@@ -118,6 +166,7 @@ public class NfcController {
                             .descripcion(descripcion)
                             .build();
                     transaccionRepository.save(transaccion);
+                    progresoCache.invalidar(estudiante.getId());
 
                     return ResponseEntity.ok(estudiante);
                 }).orElse(ResponseEntity.notFound().build());
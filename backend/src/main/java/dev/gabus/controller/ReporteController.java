@@ -1,31 +1,248 @@
 package dev.gabus.controller;
 
+import dev.gabus.dto.Estudiante.Estudiante;
+import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Grado.Grado;
+import dev.gabus.dto.Grado.GradoRepository;
+import dev.gabus.dto.Reporte.ColaReportesLlenaException;
+import dev.gabus.dto.Reporte.ReporteJob;
+import dev.gabus.dto.Reporte.ReporteJob.EstadoReporteJob;
+import dev.gabus.dto.Reporte.ReporteJob.TipoReporteJob;
+import dev.gabus.dto.Reporte.ReporteJobService;
 import dev.gabus.dto.Reporte.ReporteService;
+import dev.gabus.dto.Reporte.ReporteService.BoletinPreparado;
+import dev.gabus.dto.Reporte.ReporteService.LoteBoletines;
+import dev.gabus.dto.Usuario.Role;
+import dev.gabus.dto.Usuario.Usuario;
+import dev.gabus.dto.Usuario.UsuarioRepository;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import net.sf.jasperreports.engine.JRException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/reportes")
 @RequiredArgsConstructor
 public class ReporteController {
     private final ReporteService reporteService;
+    private final ReporteJobService reporteJobService;
+    private final UsuarioRepository usuarioRepository;
+    private final EstudianteRepository estudianteRepository;
+    private final GradoRepository gradoRepository;
+
+    private Usuario getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        return usuarioRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    }
+
+    private boolean canAccessGrado(Usuario user, Grado grado) {
+        if (user.getRole() == Role.ADMIN) return true;
+        if (grado == null || grado.getProfesor() == null) return false;
+        return grado.getProfesor().getId().equals(user.getId());
+    }
+
+    // Solo quien lo pidió (o un ADMIN) ve el trabajo; para los demás no existe (404)
+    private Optional<ReporteJob> obtenerJobPropio(Long id) {
+        Usuario user = getCurrentUser();
+        return reporteJobService.obtener(id)
+                .filter(job -> user.getRole() == Role.ADMIN || user.getUsername().equals(job.getSolicitadoPor()));
+    }
 
+    // El PDF se escribe directamente en la respuesta mientras se exporta (no se arma completo en memoria)
     @GetMapping("/boletin/{estudianteId}")
-    public ResponseEntity<byte[]> descargarBoletin(@PathVariable Long estudianteId) {
+    public ResponseEntity<StreamingResponseBody> descargarBoletin(@PathVariable Long estudianteId) {
+        Optional<Estudiante> estudiante = estudianteRepository.findById(estudianteId);
+        if (estudiante.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!canAccessGrado(getCurrentUser(), estudiante.get().getGrado())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
-            byte[] pdfBytes = reporteService.generarBoletin(estudianteId);
+            BoletinPreparado boletin = reporteService.prepararBoletin(estudianteId);
+
+            StreamingResponseBody cuerpo = out -> {
+                try {
+                    reporteService.exportarBoletin(boletin, out);
+                } catch (JRException e) {
+                    throw new IOException("Error exportando el boletín", e);
+                }
+            };
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=boletin.pdf")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .body(pdfBytes);
+                    .body(cuerpo);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Boletines de todos los estudiantes de un grado (formato=pdf: un solo PDF, formato=zip: un PDF por estudiante)
+    @GetMapping("/boletines/grado/{gradoId}")
+    public ResponseEntity<StreamingResponseBody> descargarBoletinesGrado(
+            @PathVariable Long gradoId,
+            @RequestParam(defaultValue = "pdf") String formato
+    ) {
+        if (!esFormatoLote(formato)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Grado> grado = gradoRepository.findById(gradoId);
+        if (grado.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!canAccessGrado(getCurrentUser(), grado.get())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return responderLote(reporteService.prepararBoletinesGrado(gradoId), formato, "boletines-grado-" + gradoId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Boletines de todos los grados de un año escolar (solo ADMIN)
+    @GetMapping("/boletines/anio/{anioEscolar}")
+    public ResponseEntity<StreamingResponseBody> descargarBoletinesAnio(
+            @PathVariable int anioEscolar,
+            @RequestParam(defaultValue = "pdf") String formato
+    ) {
+        if (!esFormatoLote(formato)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (getCurrentUser().getRole() != Role.ADMIN) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return responderLote(reporteService.prepararBoletinesAnio(anioEscolar), formato, "boletines-" + anioEscolar);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
         }
     }
-    
+
+    // --- Reportes en segundo plano ---
+
+    // Encola la generación de un reporte y responde 202 con el trabajo creado (429 si la cola está llena)
+    @PostMapping("/jobs")
+    public ResponseEntity<?> encolarReporte(@RequestBody ReporteJobRequest request) {
+        if (request.getTipo() == null) {
+            return ResponseEntity.badRequest().body("El tipo de reporte es obligatorio");
+        }
+        Long referenciaId = request.getTipo() == TipoReporteJob.BOLETIN ? request.getEstudianteId() : request.getGradoId();
+        if (referenciaId == null) {
+            return ResponseEntity.badRequest().body(request.getTipo() == TipoReporteJob.BOLETIN
+                    ? "Debe proporcionar estudianteId" : "Debe proporcionar gradoId");
+        }
+        String formato = request.getFormato() == null ? "pdf" : request.getFormato().toLowerCase();
+        if (!esFormatoLote(formato) || (request.getTipo() == TipoReporteJob.BOLETIN && !"pdf".equals(formato))) {
+            return ResponseEntity.badRequest().body("Formato no soportado: " + formato);
+        }
+
+        // Mismo control que la descarga directa: el trabajo no puede abrir un grado ajeno
+        Usuario user = getCurrentUser();
+        Optional<Grado> grado = request.getTipo() == TipoReporteJob.BOLETIN
+                ? estudianteRepository.findById(referenciaId).map(Estudiante::getGrado)
+                : gradoRepository.findById(referenciaId);
+        if (grado.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!canAccessGrado(user, grado.get())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            ReporteJob job = reporteJobService.encolar(request.getTipo(), referenciaId, formato, user.getUsername());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/reportes/jobs/" + job.getId()))
+                    .body(job);
+        } catch (ColaReportesLlenaException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "10")
+                    .body(e.getMessage());
+        }
+    }
+
+    // Estado del trabajo (PENDIENTE, EN_PROCESO, COMPLETADO, ERROR)
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ReporteJob> estadoReporte(@PathVariable Long id) {
+        return obtenerJobPropio(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Descarga del resultado una vez COMPLETADO
+    @GetMapping("/jobs/{id}/descarga")
+    public ResponseEntity<?> descargarReporte(@PathVariable Long id) {
+        return obtenerJobPropio(id).<ResponseEntity<?>>map(job -> {
+            if (job.getEstado() != EstadoReporteJob.COMPLETADO) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("El reporte aún no está listo. Estado: " + job.getEstado());
+            }
+            if (job.getFechaExpiracion() != null) {
+                return ResponseEntity.status(HttpStatus.GONE).body("El archivo del reporte venció y fue eliminado.");
+            }
+            Resource archivo = new FileSystemResource(reporteJobService.archivoDe(job));
+            if (!archivo.exists()) {
+                return ResponseEntity.status(HttpStatus.GONE).body("El archivo del reporte ya no está disponible.");
+            }
+            boolean zip = "zip".equals(job.getFormato());
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=reporte-" + job.getId() + (zip ? ".zip" : ".pdf"))
+                    .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF)
+                    .body(archivo);
+        }).orElse(ResponseEntity.notFound().build());
+    }
+
+    private boolean esFormatoLote(String formato) {
+        return "pdf".equalsIgnoreCase(formato) || "zip".equalsIgnoreCase(formato);
+    }
+
+    private ResponseEntity<StreamingResponseBody> responderLote(LoteBoletines lote, String formato, String nombreArchivo) {
+        if (lote.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        boolean zip = "zip".equalsIgnoreCase(formato);
+        StreamingResponseBody cuerpo = out -> {
+            try {
+                if (zip) {
+                    reporteService.exportarLoteZip(lote, out);
+                } else {
+                    reporteService.exportarLotePdf(lote, out);
+                }
+            } catch (JRException e) {
+                throw new IOException("Error exportando los boletines", e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + nombreArchivo + (zip ? ".zip" : ".pdf"))
+                .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF)
+                .body(cuerpo);
+    }
+
+    @Data
+    public static class ReporteJobRequest {
+        private TipoReporteJob tipo;
+        private Long estudianteId;  // Para BOLETIN
+        private Long gradoId;       // Para BOLETINES_GRADO
+        private String formato;     // "pdf" (por defecto) o "zip"
+    }
+
 }
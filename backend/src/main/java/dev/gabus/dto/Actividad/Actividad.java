@@ -5,6 +5,9 @@ import java.time.LocalDate;
 import java.util.Objects;
 import java.util.Set;
 
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -19,6 +22,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -41,6 +45,9 @@ import lombok.ToString;
 @Table(name = "actividad", uniqueConstraints = {
     // Evita crear "Examen 1" dos veces para la misma materia en el mismo trimestre
     @UniqueConstraint(columnNames = {"nombre", "materia_id", "trimestre_id"})
+}, indexes = {
+    // Sincronización por versión (GET /api/actividades/all?since=)
+    @Index(name = "idx_actividad_version", columnList = "version_cambio, id")
 })
 public class Actividad {
 
@@ -97,6 +104,10 @@ public class Actividad {
     @Column(name = "promedia", nullable = false, columnDefinition = "boolean default false")
     private boolean promedia;
 
+    // Versión del último cambio: id de la transacción que escribió la fila. La pone un trigger, ver CambiosActividadService.
+    @Generated(event = { EventType.INSERT, EventType.UPDATE })
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
 
     @JsonProperty("parentId")
     public Long getParentId() {
@@ -0,0 +1,31 @@
+package dev.gabus.dto.Actividad;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Nodo del árbol de actividades (ver ArbolActividadService). Solo ids de materia y trimestre, sin entidades.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActividadArbolDTO {
+    private Long id;
+    private String nombre;
+    private String descripcion;
+    private BigDecimal ponderacion;
+    private LocalDate fechaActividad;
+    private Long materiaId;
+    private Long trimestreId;
+    private Long parentId;
+    private boolean promedia;
+
+    @Builder.Default
+    private List<ActividadArbolDTO> subActividades = new ArrayList<>();
+}
@@ -0,0 +1,43 @@
+package dev.gabus.dto.Actividad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lápida de una actividad borrada, para que la sincronización por versión también informe los borrados.
+// La escribe un trigger de la base de datos al borrar de actividad (ver CambiosActividadService).
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "actividad_borrada", indexes = {
+    @Index(name = "idx_actividad_borrada_version", columnList = "version_cambio, id")
+})
+public class ActividadBorrada {
+
+    // Mismo id que tenía la actividad (los ids no se reutilizan)
+    @Id
+    private Long id;
+
+    // Decide qué profesor ve la lápida
+    @Column(name = "materia_id", nullable = false)
+    private Long materiaId;
+
+    @Column(name = "trimestre_id", nullable = false)
+    private Long trimestreId;
+
+    @Column(name = "version_cambio", nullable = false)
+    private Long versionCambio;
+
+    @Column(name = "borrada_en", nullable = false)
+    private LocalDateTime borradaEn;
+}
@@ -0,0 +1,28 @@
+package dev.gabus.dto.Actividad;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Una actividad plana (solo ids) para sincronizar. Si borrada = true, solo vienen id, materiaId, trimestreId y version.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActividadCambioDTO {
+    private Long id;
+    private String nombre;
+    private String descripcion;
+    private BigDecimal ponderacion;
+    private LocalDate fechaActividad;
+    private Long materiaId;
+    private Long trimestreId;
+    private Long parentId;
+    private boolean promedia;
+    private boolean borrada;
+    private Long version;
+}
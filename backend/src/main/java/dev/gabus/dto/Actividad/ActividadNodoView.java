@@ -0,0 +1,12 @@
+package dev.gabus.dto.Actividad;
+
+import java.math.BigDecimal;
+
+// Proyección plana de una actividad: lo necesario para armar el árbol y calcular promedios, sin materia ni trimestre
+public interface ActividadNodoView {
+    Long getId();
+    String getNombre();
+    BigDecimal getPonderacion();
+    Boolean getPromedia();
+    Long getParentId(); // null si es actividad principal
+}
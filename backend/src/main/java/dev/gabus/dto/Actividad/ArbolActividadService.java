@@ -0,0 +1,72 @@
+package dev.gabus.dto.Actividad;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Carga el árbol completo de actividades de una materia y trimestre con una sola consulta
+ * (CTE recursiva) y arma las relaciones padre-hija en memoria. La cantidad de consultas no
+ * depende de la profundidad ni del ancho del árbol.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArbolActividadService {
+
+    // Las principales y, nivel por nivel, sus descendientes. 'ruta' corta un ciclo si los datos lo tuvieran.
+    private static final String SQL_ARBOL =
+            "WITH RECURSIVE arbol AS (" +
+            " SELECT a.id, a.nombre, a.descripcion, a.ponderacion, a.fecha_actividad, a.materia_id, a.trimestre_id, " +
+            " a.parent_id, a.promedia, 0 AS nivel, ARRAY[a.id] AS ruta " +
+            " FROM actividad a WHERE a.materia_id = ? AND a.trimestre_id = ? AND a.parent_id IS NULL " +
+            " UNION ALL " +
+            " SELECT h.id, h.nombre, h.descripcion, h.ponderacion, h.fecha_actividad, h.materia_id, h.trimestre_id, " +
+            " h.parent_id, h.promedia, arbol.nivel + 1, arbol.ruta || h.id " +
+            " FROM actividad h JOIN arbol ON h.parent_id = arbol.id " +
+            " WHERE NOT h.id = ANY(arbol.ruta)" +
+            ") " +
+            "SELECT id, nombre, descripcion, ponderacion, fecha_actividad, materia_id, trimestre_id, parent_id, promedia " +
+            "FROM arbol ORDER BY nivel, id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Actividades principales, cada una con sus sub-actividades anidadas (ordenadas por id)
+    public List<ActividadArbolDTO> cargarArbol(Long materiaId, Long trimestreId) {
+        List<ActividadArbolDTO> principales = new ArrayList<>();
+        Map<Long, ActividadArbolDTO> porId = new HashMap<>();
+
+        // Por nivel: cada padre llega antes que sus hijas
+        jdbcTemplate.query(SQL_ARBOL, rs -> {
+            Date fecha = rs.getDate("fecha_actividad");
+            Long parentId = rs.getObject("parent_id", Long.class);
+            ActividadArbolDTO nodo = ActividadArbolDTO.builder()
+                    .id(rs.getLong("id"))
+                    .nombre(rs.getString("nombre"))
+                    .descripcion(rs.getString("descripcion"))
+                    .ponderacion(rs.getBigDecimal("ponderacion"))
+                    .fechaActividad(fecha != null ? fecha.toLocalDate() : null)
+                    .materiaId(rs.getLong("materia_id"))
+                    .trimestreId(rs.getLong("trimestre_id"))
+                    .parentId(parentId)
+                    .promedia(rs.getBoolean("promedia"))
+                    .build();
+            porId.put(nodo.getId(), nodo);
+
+            ActividadArbolDTO padre = nodo.getParentId() != null ? porId.get(nodo.getParentId()) : null;
+            if (padre != null) {
+                padre.getSubActividades().add(nodo);
+            } else {
+                principales.add(nodo);
+            }
+        }, materiaId, trimestreId);
+
+        return principales;
+    }
+}
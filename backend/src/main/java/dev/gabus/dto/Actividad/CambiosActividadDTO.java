@@ -0,0 +1,19 @@
+package dev.gabus.dto.Actividad;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Página de cambios de la sincronización de actividades. 'siguiente' se manda como ?since= en la próxima llamada.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CambiosActividadDTO {
+    private List<ActividadCambioDTO> cambios;
+    private String siguiente;
+    private boolean hayMas;
+}
@@ -0,0 +1,109 @@
+package dev.gabus.dto.Actividad;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios;
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios.Pagina;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sincronización de actividades (GET /api/actividades/all), filtrada por dueño en la propia consulta:
+ * un profesor solo lee las filas de sus materias, sin cargar entidades Materia, Trimestre ni Usuario.
+ *
+ * Igual que las calificaciones (ver SincronizacionCambios): version_cambio es el id de la
+ * transacción que escribió la fila, los borrados dejan lápida en actividad_borrada, el cursor es
+ * (version, id) y solo se entregan cambios de transacciones ya terminadas.
+ */
+@Service
+@DependsOn("entityManagerFactory") // Las tablas las crea Hibernate (ddl-auto); los triggers van después
+@RequiredArgsConstructor
+public class CambiosActividadService {
+
+    private static final String SQL_FUNCION_BORRADO =
+            "CREATE OR REPLACE FUNCTION actividad_registrar_borrado() RETURNS trigger AS $$ " +
+            "BEGIN " +
+            "INSERT INTO actividad_borrada (id, materia_id, trimestre_id, version_cambio, borrada_en) " +
+            "VALUES (OLD.id, OLD.materia_id, OLD.trimestre_id, pg_current_xact_id()::text::bigint, now()); " +
+            "RETURN OLD; END " +
+            "$$ LANGUAGE plpgsql";
+
+    private static final String COLUMNAS =
+            "a.version_cambio, a.id, a.nombre, a.descripcion, a.ponderacion, a.fecha_actividad, " +
+            "a.materia_id, a.trimestre_id, a.parent_id, a.promedia";
+
+    // Cada rama lee por el índice (version_cambio, id) y corta en el límite; luego se mezclan
+    private static final String SQL_CAMBIOS =
+            "(SELECT " + COLUMNAS + ", false AS borrada " +
+            " FROM actividad a JOIN materia m ON m.id = a.materia_id " +
+            " WHERE (a.version_cambio, a.id) > (?, ?) AND a.version_cambio < ? AND (? OR m.profesor_id = ?) " +
+            " ORDER BY a.version_cambio, a.id LIMIT ?) " +
+            "UNION ALL " +
+            "(SELECT b.version_cambio, b.id, CAST(NULL AS varchar), CAST(NULL AS varchar), CAST(NULL AS numeric), CAST(NULL AS date), " +
+            " b.materia_id, b.trimestre_id, CAST(NULL AS bigint), false, true " +
+            " FROM actividad_borrada b LEFT JOIN materia m ON m.id = b.materia_id " +
+            " WHERE (b.version_cambio, b.id) > (?, ?) AND b.version_cambio < ? AND (? OR m.profesor_id = ?) " +
+            " ORDER BY b.version_cambio, b.id LIMIT ?) " +
+            "ORDER BY 1, 2 LIMIT ?";
+
+    // Sin cursor: todas las actividades vigentes que ve el usuario
+    private static final String SQL_TODAS =
+            "SELECT " + COLUMNAS + ", false AS borrada " +
+            "FROM actividad a JOIN materia m ON m.id = a.materia_id " +
+            "WHERE (? OR m.profesor_id = ?) ORDER BY a.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SincronizacionCambios sincronizacionCambios;
+
+    @PostConstruct
+    public void instalarTriggers() {
+        int filas = sincronizacionCambios.instalarTriggers("actividad", SQL_FUNCION_BORRADO);
+        if (filas > 0) {
+            System.out.println("Versión de sincronización asignada a " + filas + " actividades");
+        }
+    }
+
+    // Cambios posteriores al cursor en materias del profesor (o todas si esAdmin)
+    public CambiosActividadDTO obtenerCambios(String since, int limite, boolean esAdmin, Long profesorId) {
+        Pagina<ActividadCambioDTO> pagina = sincronizacionCambios.leerCambios(since, limite,
+                (desde, horizonte, filas) -> jdbcTemplate.query(SQL_CAMBIOS, this::mapear,
+                        desde.version(), desde.id(), horizonte, esAdmin, profesorId, filas,
+                        desde.version(), desde.id(), horizonte, esAdmin, profesorId, filas,
+                        filas),
+                ActividadCambioDTO::getVersion, ActividadCambioDTO::getId);
+
+        return CambiosActividadDTO.builder()
+                .cambios(pagina.cambios())
+                .siguiente(pagina.siguiente())
+                .hayMas(pagina.hayMas())
+                .build();
+    }
+
+    public List<ActividadCambioDTO> obtenerTodas(boolean esAdmin, Long profesorId) {
+        return jdbcTemplate.query(SQL_TODAS, this::mapear, esAdmin, profesorId);
+    }
+
+    private ActividadCambioDTO mapear(ResultSet rs, int fila) throws SQLException {
+        Date fecha = rs.getDate(6);
+        return ActividadCambioDTO.builder()
+                .version(rs.getLong(1))
+                .id(rs.getLong(2))
+                .nombre(rs.getString(3))
+                .descripcion(rs.getString(4))
+                .ponderacion(rs.getBigDecimal(5))
+                .fechaActividad(fecha != null ? fecha.toLocalDate() : null)
+                .materiaId(rs.getLong(7))
+                .trimestreId(rs.getLong(8))
+                .parentId(rs.getObject(9, Long.class))
+                .promedia(rs.getBoolean(10))
+                .borrada(rs.getBoolean(11))
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package dev.gabus.dto.Actividad;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import dev.gabus.dto.Trimestre.Trimestre;
+import dev.gabus.dto.Trimestre.TrimestreRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Copia el plan de actividades (árbol completo, con ponderaciones y "promedia") de una materia de
+ * un trimestre a otro, o de todos los trimestres de un año escolar a los del año siguiente.
+ *
+ * Cada trimestre se copia con un único INSERT ... SELECT: los ids nuevos se piden a la secuencia
+ * en la misma sentencia y el parent_id de cada copia se traduce con ese mapa origen -> copia.
+ * Las fechas de las actividades se corren lo mismo que la fecha de inicio del trimestre.
+ */
+@Service
+@RequiredArgsConstructor
+public class ClonacionActividadService {
+
+    // 'origen' se referencia dos veces, así que PostgreSQL la materializa: nextval se evalúa una sola vez por actividad
+    private static final String SQL_CLONAR =
+            "WITH origen AS (" +
+            " SELECT a.*, nextval(pg_get_serial_sequence('actividad', 'id')) AS nuevo_id " +
+            " FROM actividad a WHERE a.materia_id = ? AND a.trimestre_id = ?" +
+            "), copias AS (" +
+            " INSERT INTO actividad (id, nombre, descripcion, ponderacion, fecha_actividad, materia_id, trimestre_id, parent_id, promedia) " +
+            " SELECT o.nuevo_id, o.nombre, o.descripcion, o.ponderacion, o.fecha_actividad + ?, o.materia_id, ?, p.nuevo_id, o.promedia " +
+            " FROM origen o LEFT JOIN origen p ON p.id = o.parent_id " +
+            " RETURNING id" +
+            ") SELECT COUNT(*) FROM copias";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrimestreRepository trimestreRepository;
+
+    // Copia las actividades de la materia en 'origen' a 'destino'. Devuelve cuántas se crearon.
+    @Transactional
+    public int clonarTrimestre(Long materiaId, Trimestre origen, Trimestre destino) {
+        if (origen.getId().equals(destino.getId())) {
+            throw new IllegalArgumentException("El trimestre de origen y el de destino son el mismo");
+        }
+        bloquearDestino(materiaId, destino.getId());
+        if (!destinoVacio(materiaId, destino.getId())) {
+            throw new IllegalStateException("La materia ya tiene actividades en el trimestre " + destino.getNombre() + " (" + destino.getAnioEscolar() + ")");
+        }
+        return copiar(materiaId, origen, destino);
+    }
+
+    /**
+     * Copia cada trimestre del año de origen al trimestre en la misma posición (por fecha de inicio)
+     * del año de destino, para cada materia. Los trimestres de destino que ya tienen actividades se saltan.
+     */
+    @Transactional
+    public Resultado clonarAnio(List<Long> materiaIds, int anioOrigen, int anioDestino) {
+        if (anioOrigen == anioDestino) {
+            throw new IllegalArgumentException("El año de origen y el de destino son el mismo");
+        }
+        List<Trimestre> origenes = trimestreRepository.findByAnioEscolarOrderByFechaInicioAsc(anioOrigen);
+        List<Trimestre> destinos = trimestreRepository.findByAnioEscolarOrderByFechaInicioAsc(anioDestino);
+        if (destinos.isEmpty()) {
+            throw new IllegalArgumentException("No hay trimestres creados para el año " + anioDestino);
+        }
+
+        int actividades = 0;
+        int trimestres = 0;
+        int omitidos = 0;
+        int pares = Math.min(origenes.size(), destinos.size());
+        // Siempre en el mismo orden (materia, trimestre): dos clonaciones simultáneas no se bloquean en cruz
+        for (Long materiaId : materiaIds.stream().sorted().toList()) {
+            for (int i = 0; i < pares; i++) {
+                bloquearDestino(materiaId, destinos.get(i).getId());
+                if (!destinoVacio(materiaId, destinos.get(i).getId())) {
+                    omitidos++;
+                    continue;
+                }
+                int copiadas = copiar(materiaId, origenes.get(i), destinos.get(i));
+                if (copiadas > 0) {
+                    actividades += copiadas;
+                    trimestres++;
+                }
+            }
+        }
+        return new Resultado(actividades, trimestres, omitidos);
+    }
+
+    // Hasta el final de la transacción, otra clonación al mismo destino espera y luego lo encuentra ocupado
+    private void bloquearDestino(Long materiaId, Long trimestreId) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtextextended('clonacion:' || ? || ':' || ?, 0))",
+                (RowCallbackHandler) rs -> {}, materiaId, trimestreId);
+    }
+
+    private boolean destinoVacio(Long materiaId, Long trimestreId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM actividad WHERE materia_id = ? AND trimestre_id = ?)",
+                Boolean.class, materiaId, trimestreId));
+    }
+
+    private int copiar(Long materiaId, Trimestre origen, Trimestre destino) {
+        int desplazamientoDias = (int) (destino.getFechaInicio().toEpochDay() - origen.getFechaInicio().toEpochDay());
+        Integer copiadas = jdbcTemplate.queryForObject(SQL_CLONAR, Integer.class,
+                materiaId, origen.getId(), desplazamientoDias, destino.getId());
+
+        // El tope de las principales pudo quedar guardado de actividades anteriores ya borradas:
+        // se descarta y se vuelve a calcular, con las copias, la próxima vez que se use
+        jdbcTemplate.update("DELETE FROM presupuesto_ponderacion WHERE materia_id = ? AND trimestre_id = ? AND padre_id = 0",
+                materiaId, destino.getId());
+        return copiadas != null ? copiadas : 0;
+    }
+
+    // actividades: creadas; trimestres: (materia, trimestre) copiados; omitidos: destinos que ya tenían actividades
+    public record Resultado(int actividades, int trimestres, int omitidos) {}
+}
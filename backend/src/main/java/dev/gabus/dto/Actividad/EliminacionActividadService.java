@@ -0,0 +1,61 @@
+package dev.gabus.dto.Actividad;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Borra una actividad con todo su sub-árbol (sub-actividades a cualquier profundidad) y las notas de
+ * todas ellas. El sub-árbol se encuentra con una CTE recursiva dentro de cada sentencia y se borra por
+ * conjuntos: tres sentencias en total, sin cargar entidades, tenga la actividad 3 o 300 hijas.
+ * Los triggers de calificacion y actividad (lápidas e historial) siguen funcionando fila por fila.
+ */
+@Service
+@RequiredArgsConstructor
+public class EliminacionActividadService {
+
+    // UNION (no UNION ALL): si los datos tuvieran un ciclo, la recursión igual termina
+    private static final String SUBARBOL =
+            "WITH RECURSIVE subarbol AS (" +
+            " SELECT id FROM actividad WHERE id = ? " +
+            " UNION " +
+            " SELECT h.id FROM actividad h JOIN subarbol s ON h.parent_id = s.id" +
+            ") ";
+
+    private static final String SQL_BORRAR_NOTAS = SUBARBOL + ", " +
+            "borradas AS (DELETE FROM calificacion WHERE actividad_id IN (SELECT id FROM subarbol) RETURNING estudiante_id) " +
+            "SELECT estudiante_id, COUNT(*) FROM borradas GROUP BY estudiante_id";
+
+    private static final String SQL_BORRAR_PRESUPUESTOS = SUBARBOL +
+            "DELETE FROM presupuesto_ponderacion WHERE padre_id IN (SELECT id FROM subarbol)";
+
+    // Padres e hijas en la misma sentencia: la clave foránea parent_id se verifica al final
+    private static final String SQL_BORRAR_ACTIVIDADES = SUBARBOL +
+            "DELETE FROM actividad WHERE id IN (SELECT id FROM subarbol)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Resultado eliminarSubarbol(Long actividadId) {
+        Set<Long> estudianteIds = new LinkedHashSet<>();
+        long[] calificaciones = { 0 };
+        jdbcTemplate.query(SQL_BORRAR_NOTAS, rs -> {
+            estudianteIds.add(rs.getLong(1));
+            calificaciones[0] += rs.getLong(2);
+        }, actividadId);
+
+        jdbcTemplate.update(SQL_BORRAR_PRESUPUESTOS, actividadId);
+        int actividades = jdbcTemplate.update(SQL_BORRAR_ACTIVIDADES, actividadId);
+
+        return new Resultado(actividades, calificaciones[0], estudianteIds);
+    }
+
+    // Cantidades borradas y estudiantes que tenían notas en el sub-árbol
+    public record Resultado(int actividades, long calificaciones, Set<Long> estudianteIds) {}
+}
@@ -0,0 +1,46 @@
+package dev.gabus.dto.Actividad;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ponderación que queda libre para nuevas actividades.
+// padreId = 0: actividades principales de la materia en el trimestre (tope 100).
+// padreId = id de una actividad: sus sub-actividades (tope = ponderación del padre).
+// Se modifica solo con UPDATE condicionales (ver PresupuestoPonderacionService).
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "presupuesto_ponderacion", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_presupuesto_ponderacion", columnNames = {"materia_id", "trimestre_id", "padre_id"})
+})
+public class PresupuestoPonderacion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "materia_id", nullable = false)
+    private Long materiaId;
+
+    @Column(name = "trimestre_id", nullable = false)
+    private Long trimestreId;
+
+    @Column(name = "padre_id", nullable = false)
+    private Long padreId;
+
+    @Column(nullable = false, precision = 7, scale = 2)
+    private BigDecimal disponible;
+}
@@ -0,0 +1,101 @@
+package dev.gabus.dto.Actividad;
+
+import java.math.BigDecimal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tope de ponderación al crear o editar actividades: 100 para las principales de una materia y
+ * trimestre, y la ponderación del padre para sus sub-actividades.
+ *
+ * Cada tope es una fila de presupuesto_ponderacion y reservar es un solo
+ * UPDATE ... SET disponible = disponible - x WHERE disponible >= x: dos creaciones simultáneas se
+ * ordenan en el bloqueo de esa fila y la segunda ve lo que dejó la primera, así que el tope nunca
+ * se pasa. La suma de hermanas solo se calcula la primera vez, al crear la fila.
+ * Los métodos exigen la transacción del llamador, para deshacerse junto con el cambio de la actividad.
+ */
+@Service
+@RequiredArgsConstructor
+public class PresupuestoPonderacionService {
+
+    public static final BigDecimal TOPE_PRINCIPALES = new BigDecimal("100.00");
+
+    // padre_id de la fila de las actividades principales
+    private static final long PRINCIPALES = 0L;
+
+    private static final String SQL_RESERVAR =
+            "UPDATE presupuesto_ponderacion SET disponible = disponible - ? " +
+            "WHERE materia_id = ? AND trimestre_id = ? AND padre_id = ? AND (? <= 0 OR disponible >= ?)";
+
+    private static final String SQL_CREAR_PRINCIPALES =
+            "INSERT INTO presupuesto_ponderacion (materia_id, trimestre_id, padre_id, disponible) " +
+            "SELECT ?, ?, 0, ? - COALESCE(SUM(a.ponderacion), 0) FROM actividad a " +
+            "WHERE a.materia_id = ? AND a.trimestre_id = ? AND a.parent_id IS NULL " +
+            "ON CONFLICT (materia_id, trimestre_id, padre_id) DO NOTHING";
+
+    private static final String SQL_CREAR_HIJAS =
+            "INSERT INTO presupuesto_ponderacion (materia_id, trimestre_id, padre_id, disponible) " +
+            "SELECT p.materia_id, p.trimestre_id, p.id, " +
+            "p.ponderacion - COALESCE((SELECT SUM(h.ponderacion) FROM actividad h WHERE h.parent_id = p.id), 0) " +
+            "FROM actividad p WHERE p.id = ? " +
+            "ON CONFLICT (materia_id, trimestre_id, padre_id) DO NOTHING";
+
+    private static final String SQL_DISPONIBLE =
+            "SELECT disponible FROM presupuesto_ponderacion WHERE materia_id = ? AND trimestre_id = ? AND padre_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Reserva 'cantidad' entre las principales de la materia y trimestre (negativa: devuelve). false si no alcanza.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reservarPrincipal(Long materiaId, Long trimestreId, BigDecimal cantidad) {
+        if (cantidad.signum() == 0) {
+            return true;
+        }
+        if (reservar(materiaId, trimestreId, PRINCIPALES, cantidad)) {
+            return true;
+        }
+        // Puede que la fila no exista todavía (materia o trimestre nuevos, o datos anteriores)
+        jdbcTemplate.update(SQL_CREAR_PRINCIPALES, materiaId, trimestreId, TOPE_PRINCIPALES, materiaId, trimestreId);
+        return reservar(materiaId, trimestreId, PRINCIPALES, cantidad);
+    }
+
+    // Reserva 'cantidad' entre las sub-actividades de 'padre' (negativa: devuelve). false si no alcanza.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reservarHija(Actividad padre, BigDecimal cantidad) {
+        if (cantidad.signum() == 0) {
+            return true;
+        }
+        Long materiaId = padre.getMateria().getId();
+        Long trimestreId = padre.getTrimestre().getId();
+        if (reservar(materiaId, trimestreId, padre.getId(), cantidad)) {
+            return true;
+        }
+        jdbcTemplate.update(SQL_CREAR_HIJAS, padre.getId());
+        return reservar(materiaId, trimestreId, padre.getId(), cantidad);
+    }
+
+    // Cambia la ponderación de un padre: su tope para las hijas se mueve lo mismo.
+    // false si bajaría por debajo de lo que ya suman sus sub-actividades.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean cambiarTopeHijas(Actividad padre, BigDecimal nuevaPonderacion) {
+        // Ampliar el tope es devolver; achicarlo, reservar
+        return reservarHija(padre, padre.getPonderacion().subtract(nuevaPonderacion));
+    }
+
+    // Ponderación ya usada por las principales (para los mensajes de error)
+    public BigDecimal usadoPrincipales(Long materiaId, Long trimestreId) {
+        BigDecimal disponible = jdbcTemplate.query(SQL_DISPONIBLE,
+                rs -> rs.next() ? rs.getBigDecimal(1) : TOPE_PRINCIPALES, materiaId, trimestreId, PRINCIPALES);
+        return TOPE_PRINCIPALES.subtract(disponible);
+    }
+
+    private boolean reservar(Long materiaId, Long trimestreId, long padreId, BigDecimal cantidad) {
+        // Devolver (cantidad negativa) siempre se puede
+        return jdbcTemplate.update(SQL_RESERVAR, cantidad, materiaId, trimestreId, padreId, cantidad, cantidad) == 1;
+    }
+}
@@ -0,0 +1,230 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import dev.gabus.dto.Actividad.ActividadNodoView;
+
+/**
+ * Cálculo de la nota de un trimestre sobre el árbol de actividades de una materia.
+ *
+ * Reglas: una actividad con sub-actividades vale el promedio ponderado de sus hijas si está marcada
+ * como "promedia" o si no tiene nota propia; si no, vale su propia nota. La nota del trimestre es el
+ * promedio ponderado de las actividades principales que tienen valor. Las actividades sin nota no
+ * cuentan. Cada promedio se redondea a 2 decimales (HALF_UP), igual que BigDecimal.divide(x, 2, HALF_UP).
+ *
+ * Las notas y ponderaciones se manejan como enteros en centésimas (85.50 -> 8550), de modo que
+ * evaluar un estudiante no crea objetos: el árbol se compila una vez (ArbolActividades) y cada
+ * Evaluador reutiliza sus arreglos de trabajo.
+ */
+@Component
+public class CalculadoraNotas {
+
+    // Celda sin nota
+    public static final long SIN_NOTA = Long.MIN_VALUE;
+
+    // Compila el árbol de una materia y trimestre. El orden de las columnas es de árbol (cada padre antes de sus hijas).
+    public ArbolActividades compilar(List<ActividadNodoView> actividades) {
+        return new ArbolActividades(ordenarComoArbol(actividades));
+    }
+
+    public static long aCentesimas(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal deCentesimas(long centesimas) {
+        return centesimas == SIN_NOTA ? null : BigDecimal.valueOf(centesimas, 2);
+    }
+
+    // Promedio (en centésimas) de una suma de productos nota * ponderación (4 decimales) entre la suma de ponderaciones (2 decimales)
+    public static long promedio(long sumaPonderada, long sumaPonderaciones) {
+        if (sumaPonderaciones == 0) {
+            return SIN_NOTA;
+        }
+        return dividirRedondeando(sumaPonderada, sumaPonderaciones);
+    }
+
+    // Lo mismo a partir de sumas guardadas como BigDecimal (tabla promedio_trimestre)
+    public static BigDecimal promedio(BigDecimal sumaPonderada, BigDecimal sumaPonderaciones) {
+        long suma = sumaPonderada.setScale(4, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        return deCentesimas(promedio(suma, aCentesimas(sumaPonderaciones)));
+    }
+
+    // n / d redondeado al entero más cercano; los empates se alejan de cero (HALF_UP)
+    static long dividirRedondeando(long n, long d) {
+        boolean negativo = (n < 0) != (d < 0);
+        long absN = Math.abs(n);
+        long absD = Math.abs(d);
+        long cociente = (2 * absN + absD) / (2 * absD);
+        return negativo ? -cociente : cociente;
+    }
+
+    // Preorden: cada actividad principal seguida de sus sub-actividades.
+    // Una actividad cuyo padre no está en la lista se trata como principal.
+    private static List<ActividadNodoView> ordenarComoArbol(List<ActividadNodoView> actividades) {
+        Map<Long, ActividadNodoView> porId = new HashMap<>();
+        for (ActividadNodoView actividad : actividades) {
+            porId.put(actividad.getId(), actividad);
+        }
+
+        Map<Long, List<ActividadNodoView>> hijas = new HashMap<>();
+        List<ActividadNodoView> raices = new ArrayList<>();
+        for (ActividadNodoView actividad : actividades) {
+            if (actividad.getParentId() != null && porId.containsKey(actividad.getParentId())) {
+                hijas.computeIfAbsent(actividad.getParentId(), k -> new ArrayList<>()).add(actividad);
+            } else {
+                raices.add(actividad);
+            }
+        }
+
+        List<ActividadNodoView> orden = new ArrayList<>(actividades.size());
+        for (ActividadNodoView raiz : raices) {
+            agregarEnPreorden(raiz, hijas, orden);
+        }
+        return orden;
+    }
+
+    private static void agregarEnPreorden(ActividadNodoView actividad, Map<Long, List<ActividadNodoView>> hijas, List<ActividadNodoView> orden) {
+        orden.add(actividad);
+        for (ActividadNodoView hija : hijas.getOrDefault(actividad.getId(), List.of())) {
+            agregarEnPreorden(hija, hijas, orden);
+        }
+    }
+
+    /**
+     * Árbol de actividades aplanado en arreglos (una posición por columna, en preorden).
+     * Es inmutable y se puede compartir entre hilos.
+     */
+    public static final class ArbolActividades {
+        private final List<ActividadNodoView> columnas;
+        private final Map<Long, Integer> columnaDe;
+        private final int[] padres;       // Columna del padre, -1 si es principal
+        private final long[] ponderaciones; // En centésimas
+        private final boolean[] promedia;
+        private final boolean[] tieneHijas;
+
+        ArbolActividades(List<ActividadNodoView> columnas) {
+            int n = columnas.size();
+            this.columnas = List.copyOf(columnas);
+            this.columnaDe = new HashMap<>();
+            for (int j = 0; j < n; j++) {
+                columnaDe.put(columnas.get(j).getId(), j);
+            }
+
+            this.padres = new int[n];
+            this.ponderaciones = new long[n];
+            this.promedia = new boolean[n];
+            this.tieneHijas = new boolean[n];
+            for (int j = 0; j < n; j++) {
+                ActividadNodoView actividad = columnas.get(j);
+                Integer padre = actividad.getParentId() != null ? columnaDe.get(actividad.getParentId()) : null;
+                padres[j] = padre != null ? padre : -1;
+                ponderaciones[j] = actividad.getPonderacion() != null ? aCentesimas(actividad.getPonderacion()) : 0L;
+                promedia[j] = Boolean.TRUE.equals(actividad.getPromedia());
+                if (padre != null) {
+                    tieneHijas[padre] = true;
+                }
+            }
+        }
+
+        public int tamano() {
+            return padres.length;
+        }
+
+        public List<ActividadNodoView> getColumnas() {
+            return columnas;
+        }
+
+        // Columna de la actividad, o -1 si no pertenece a este árbol
+        public int columnaDe(Long actividadId) {
+            Integer j = columnaDe.get(actividadId);
+            return j != null ? j : -1;
+        }
+
+        public int padreDe(int columna) {
+            return padres[columna];
+        }
+
+        // Los arreglos de trabajo se crean una vez por evaluador; un evaluador no es seguro entre hilos
+        public Evaluador nuevoEvaluador() {
+            return new Evaluador(this);
+        }
+    }
+
+    /**
+     * Evalúa filas de notas (en centésimas, SIN_NOTA si falta) contra un árbol compilado.
+     * Después de evaluar() quedan disponibles el peso de las actividades principales que aportaron y
+     * la cantidad de notas de la fila.
+     */
+    public static final class Evaluador {
+        private final ArbolActividades arbol;
+        private final long[] sumaHijas; // SUM(valor * ponderación) de las hijas, 4 decimales
+        private final long[] pesoHijas; // SUM(ponderación) de las hijas con valor, 2 decimales
+        private long pesoPrincipales;
+        private int cantidadNotas;
+
+        Evaluador(ArbolActividades arbol) {
+            this.arbol = arbol;
+            this.sumaHijas = new long[arbol.tamano()];
+            this.pesoHijas = new long[arbol.tamano()];
+        }
+
+        // Nota del trimestre (centésimas) de la fila que empieza en notas[desde], o SIN_NOTA
+        public long evaluar(long[] notas, int desde) {
+            int[] padres = arbol.padres;
+            long[] ponderaciones = arbol.ponderaciones;
+            long sumaPrincipales = 0;
+            long peso = 0;
+            int cantidad = 0;
+
+            // En preorden las hijas van después del padre: recorriendo al revés, cada hija se resuelve antes que su padre
+            for (int j = padres.length - 1; j >= 0; j--) {
+                long valor = notas[desde + j];
+                if (valor != SIN_NOTA) {
+                    cantidad++;
+                }
+                if (arbol.tieneHijas[j]) {
+                    if (arbol.promedia[j] || valor == SIN_NOTA) {
+                        valor = promedio(sumaHijas[j], pesoHijas[j]);
+                    }
+                    // Se limpian al usarse, así el evaluador queda listo para la siguiente fila
+                    sumaHijas[j] = 0;
+                    pesoHijas[j] = 0;
+                }
+                if (valor == SIN_NOTA) {
+                    continue;
+                }
+
+                long aporte = valor * ponderaciones[j];
+                int padre = padres[j];
+                if (padre < 0) {
+                    sumaPrincipales += aporte;
+                    peso += ponderaciones[j];
+                } else {
+                    sumaHijas[padre] += aporte;
+                    pesoHijas[padre] += ponderaciones[j];
+                }
+            }
+
+            this.pesoPrincipales = peso;
+            this.cantidadNotas = cantidad;
+            return promedio(sumaPrincipales, peso);
+        }
+
+        // Suma de ponderaciones (centésimas) de las actividades principales con valor en la última fila evaluada
+        public long getPesoPrincipales() {
+            return pesoPrincipales;
+        }
+
+        // Cantidad de notas registradas en la última fila evaluada
+        public int getCantidadNotas() {
+            return cantidadNotas;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package dev.gabus.dto.Calificacion;
 
 import java.math.BigDecimal;
 
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import dev.gabus.dto.Actividad.Actividad;
@@ -12,6 +15,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -30,6 +34,9 @@ import lombok.NoArgsConstructor;
     // Regla de negocio CLAVE:
     // Un estudiante solo puede tener UNA calificación por actividad.
     @UniqueConstraint(columnNames = {"estudiante_id", "actividad_id"})
+}, indexes = {
+    // Sincronización por versión (GET /api/calificaciones/all?since=)
+    @Index(name = "idx_calificacion_version", columnList = "version_cambio, id")
 })
 public class Calificacion {
     @Id
@@ -45,6 +52,12 @@ public class Calificacion {
     @Column(nullable = true)
     private String observacion;
 
+    // Versión del último cambio: id de la transacción que escribió la fila. La pone un trigger
+    // en cada INSERT/UPDATE (también en los upserts por JDBC), ver CambiosCalificacionService.
+    @Generated(event = { EventType.INSERT, EventType.UPDATE })
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
+
     // --- Relación con Estudiante ---
     // Muchas calificaciones pertenecen a Un Estudiante
     @ManyToOne(fetch = FetchType.LAZY)
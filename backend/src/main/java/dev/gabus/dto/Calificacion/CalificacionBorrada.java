@@ -0,0 +1,46 @@
+package dev.gabus.dto.Calificacion;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lápida de una calificación borrada, para que la sincronización por versión también informe los borrados.
+// La escribe un trigger de la base de datos al borrar de calificacion (ver CambiosCalificacionService).
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "calificacion_borrada", indexes = {
+    @Index(name = "idx_calificacion_borrada_version", columnList = "version_cambio, id")
+})
+public class CalificacionBorrada {
+
+    // Mismo id que tenía la calificación (los ids no se reutilizan)
+    @Id
+    private Long id;
+
+    @Column(name = "estudiante_id", nullable = false)
+    private Long estudianteId;
+
+    @Column(name = "actividad_id", nullable = false)
+    private Long actividadId;
+
+    // Materia de la actividad al momento del borrado: decide qué profesor ve la lápida
+    @Column(name = "materia_id")
+    private Long materiaId;
+
+    @Column(name = "version_cambio", nullable = false)
+    private Long versionCambio;
+
+    @Column(name = "borrada_en", nullable = false)
+    private LocalDateTime borradaEn;
+}
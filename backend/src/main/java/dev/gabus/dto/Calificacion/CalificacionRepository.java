@@ -1,9 +1,12 @@
 package dev.gabus.dto.Calificacion;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.transaction.Transactional;
@@ -23,6 +26,45 @@ public interface CalificacionRepository extends JpaRepository<Calificacion, Long
     //Buscar todas las notas de una actividad especifica
     List<Calificacion> findByActividadId(Long actividadId);
 
+    //Planilla de una actividad: todos los estudiantes del grado con su nota (o null), en una sola consulta
+    @Query("SELECT new dev.gabus.dto.Calificacion.PlanillaItemDTO(e.id, e.nombres, e.apellidos, c.id, c.nota, c.observacion) " +
+           "FROM Estudiante e LEFT JOIN Calificacion c ON c.estudiante = e AND c.actividad.id = :actividadId " +
+           "WHERE e.grado.id = :gradoId " +
+           "ORDER BY e.apellidos, e.nombres, e.id")
+    List<PlanillaItemDTO> findPlanilla(@Param("gradoId") Long gradoId, @Param("actividadId") Long actividadId, Pageable pagina);
+
+    //Siguiente página de la planilla (keyset): los estudiantes que van después de 'despuesDe' en el orden alfabético
+    @Query("SELECT new dev.gabus.dto.Calificacion.PlanillaItemDTO(e.id, e.nombres, e.apellidos, c.id, c.nota, c.observacion) " +
+           "FROM Estudiante e JOIN Estudiante ult ON ult.id = :despuesDe " +
+           "LEFT JOIN Calificacion c ON c.estudiante = e AND c.actividad.id = :actividadId " +
+           "WHERE e.grado.id = :gradoId " +
+           "AND (e.apellidos > ult.apellidos OR (e.apellidos = ult.apellidos " +
+           "     AND (e.nombres > ult.nombres OR (e.nombres = ult.nombres AND e.id > ult.id)))) " +
+           "ORDER BY e.apellidos, e.nombres, e.id")
+    List<PlanillaItemDTO> findPlanillaDespuesDe(@Param("gradoId") Long gradoId, @Param("actividadId") Long actividadId,
+                                                @Param("despuesDe") Long despuesDe, Pageable pagina);
+
+    //Todas las notas de un grado en una materia y trimestre (celdas del libro de notas)
+    @Query("SELECT c.estudiante.id AS estudianteId, c.actividad.id AS actividadId, c.nota AS nota " +
+           "FROM Calificacion c " +
+           "WHERE c.estudiante.grado.id = :gradoId AND c.actividad.materia.id = :materiaId AND c.actividad.trimestre.id = :trimestreId")
+    List<NotaCeldaView> findCeldas(@Param("gradoId") Long gradoId, @Param("materiaId") Long materiaId, @Param("trimestreId") Long trimestreId);
+
+    //Notas de una materia y trimestre (recálculo de promedios)
+    @Query("SELECT c.estudiante.id AS estudianteId, c.actividad.id AS actividadId, c.nota AS nota " +
+           "FROM Calificacion c WHERE c.actividad.materia.id = :materiaId AND c.actividad.trimestre.id = :trimestreId")
+    List<NotaCeldaView> findCeldasByMateriaIdAndTrimestreId(@Param("materiaId") Long materiaId, @Param("trimestreId") Long trimestreId);
+
+    @Query("SELECT c.estudiante.id AS estudianteId, c.actividad.id AS actividadId, c.nota AS nota " +
+           "FROM Calificacion c WHERE c.actividad.materia.id = :materiaId AND c.actividad.trimestre.id = :trimestreId " +
+           "AND c.estudiante.id IN :estudianteIds")
+    List<NotaCeldaView> findCeldasByMateriaIdAndTrimestreIdAndEstudianteIds(@Param("materiaId") Long materiaId, @Param("trimestreId") Long trimestreId,
+                                                                           @Param("estudianteIds") Collection<Long> estudianteIds);
+
+    //Estudiantes que tienen nota en una actividad (para invalidar sus boletines en caché)
+    @Query("SELECT DISTINCT c.estudiante.id FROM Calificacion c WHERE c.actividad.id = :actividadId")
+    List<Long> findEstudianteIdsByActividadId(@Param("actividadId") Long actividadId);
+
     //Buscar una nota especifica por estudiante y actividad
     Calificacion findByEstudianteIdAndActividadId(Long estudianteId, Long actividadId);
 
@@ -0,0 +1,23 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Una calificación plana (solo ids) para sincronizar. Si borrada = true, nota y observacion vienen en null.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CambioCalificacionDTO {
+    private Long id;
+    private Long estudianteId;
+    private Long actividadId;
+    private BigDecimal nota;
+    private String observacion;
+    private boolean borrada;
+    private Long version;
+}
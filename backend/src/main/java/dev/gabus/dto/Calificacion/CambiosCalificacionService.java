@@ -0,0 +1,96 @@
+package dev.gabus.dto.Calificacion;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios;
+import dev.gabus.dto.Sincronizacion.SincronizacionCambios.Pagina;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sincronización incremental de calificaciones (GET /api/calificaciones/all?since=).
+ * Triggers, cursor y paginado son los de SincronizacionCambios; aquí van las consultas propias de
+ * calificacion (filtradas por dueño en la misma consulta) y la lápida, que guarda también la materia.
+ */
+@Service
+@DependsOn("entityManagerFactory") // Las tablas las crea Hibernate (ddl-auto); los triggers van después
+@RequiredArgsConstructor
+public class CambiosCalificacionService {
+
+    private static final String SQL_FUNCION_BORRADO =
+            "CREATE OR REPLACE FUNCTION calificacion_registrar_borrado() RETURNS trigger AS $$ " +
+            "BEGIN " +
+            "INSERT INTO calificacion_borrada (id, estudiante_id, actividad_id, materia_id, version_cambio, borrada_en) " +
+            "VALUES (OLD.id, OLD.estudiante_id, OLD.actividad_id, " +
+            "(SELECT materia_id FROM actividad WHERE id = OLD.actividad_id), pg_current_xact_id()::text::bigint, now()); " +
+            "RETURN OLD; END " +
+            "$$ LANGUAGE plpgsql";
+
+    // Cada rama lee por el índice (version_cambio, id) y corta en el límite; luego se mezclan
+    private static final String SQL_CAMBIOS =
+            "(SELECT c.version_cambio, c.id, c.estudiante_id, c.actividad_id, c.nota, c.observacion, false AS borrada " +
+            " FROM calificacion c JOIN actividad a ON a.id = c.actividad_id LEFT JOIN materia m ON m.id = a.materia_id " +
+            " WHERE (c.version_cambio, c.id) > (?, ?) AND c.version_cambio < ? AND (? OR m.profesor_id = ?) " +
+            " ORDER BY c.version_cambio, c.id LIMIT ?) " +
+            "UNION ALL " +
+            "(SELECT b.version_cambio, b.id, b.estudiante_id, b.actividad_id, CAST(NULL AS numeric), CAST(NULL AS varchar), true " +
+            " FROM calificacion_borrada b LEFT JOIN materia m ON m.id = b.materia_id " +
+            " WHERE (b.version_cambio, b.id) > (?, ?) AND b.version_cambio < ? AND (? OR m.profesor_id = ?) " +
+            " ORDER BY b.version_cambio, b.id LIMIT ?) " +
+            "ORDER BY 1, 2 LIMIT ?";
+
+    // Sin cursor: todas las notas vigentes que ve el usuario (sincronización total)
+    private static final String SQL_TODAS =
+            "SELECT c.version_cambio, c.id, c.estudiante_id, c.actividad_id, c.nota, c.observacion, false AS borrada " +
+            "FROM calificacion c JOIN actividad a ON a.id = c.actividad_id LEFT JOIN materia m ON m.id = a.materia_id " +
+            "WHERE (? OR m.profesor_id = ?) ORDER BY c.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SincronizacionCambios sincronizacionCambios;
+
+    @PostConstruct
+    public void instalarTriggers() {
+        int filas = sincronizacionCambios.instalarTriggers("calificacion", SQL_FUNCION_BORRADO);
+        if (filas > 0) {
+            System.out.println("Versión de sincronización asignada a " + filas + " calificaciones");
+        }
+    }
+
+    // Cambios posteriores al cursor, visibles para el profesor (o todos si esAdmin)
+    public CambiosCalificacionDTO obtenerCambios(String since, int limite, boolean esAdmin, Long profesorId) {
+        Pagina<CambioCalificacionDTO> pagina = sincronizacionCambios.leerCambios(since, limite,
+                (desde, horizonte, filas) -> jdbcTemplate.query(SQL_CAMBIOS, this::mapear,
+                        desde.version(), desde.id(), horizonte, esAdmin, profesorId, filas,
+                        desde.version(), desde.id(), horizonte, esAdmin, profesorId, filas,
+                        filas),
+                CambioCalificacionDTO::getVersion, CambioCalificacionDTO::getId);
+
+        return CambiosCalificacionDTO.builder()
+                .cambios(pagina.cambios())
+                .siguiente(pagina.siguiente())
+                .hayMas(pagina.hayMas())
+                .build();
+    }
+
+    public List<CambioCalificacionDTO> obtenerTodas(boolean esAdmin, Long profesorId) {
+        return jdbcTemplate.query(SQL_TODAS, this::mapear, esAdmin, profesorId);
+    }
+
+    private CambioCalificacionDTO mapear(ResultSet rs, int fila) throws SQLException {
+        return CambioCalificacionDTO.builder()
+                .version(rs.getLong(1))
+                .id(rs.getLong(2))
+                .estudianteId(rs.getLong(3))
+                .actividadId(rs.getLong(4))
+                .nota(rs.getBigDecimal(5))
+                .observacion(rs.getString(6))
+                .borrada(rs.getBoolean(7))
+                .build();
+    }
+}
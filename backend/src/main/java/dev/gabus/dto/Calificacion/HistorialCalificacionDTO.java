@@ -0,0 +1,25 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Una versión de una calificación en calificacion_historial. Si borrada = true, nota y observacion vienen en null.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistorialCalificacionDTO {
+    private Long calificacionId;
+    private Long estudianteId;
+    private Long actividadId;
+    private BigDecimal nota;
+    private String observacion;
+    private boolean borrada;
+    private String autor;
+    private LocalDateTime registradaEn;
+}
@@ -0,0 +1,270 @@
+package dev.gabus.dto.Calificacion;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Historial de calificaciones: cada alta, cambio de nota u observación y borrado agrega una fila a
+ * calificacion_historial (solo se inserta, nunca se modifica). La tabla está particionada por mes y
+ * tiene un índice BRIN por fecha, de modo que las consultas "a tal fecha" solo leen los meses que tocan.
+ * Las particiones de los próximos meses se crean al arrancar y luego una vez por día (historial.particiones.cron).
+ *
+ * Las filas las escribe un trigger sobre calificacion, así que cubren los guardados por JPA, los
+ * upserts por JDBC y los DELETE masivos sin tocar esas rutas. El autor es el usuario que la
+ * transacción declaró con registrarAutor().
+ *
+ * Cada fila guarda también el grado, la materia y el trimestre de la nota: el libro "a tal fecha" filtra
+ * por esas columnas y no depende de que la actividad o el estudiante sigan existiendo.
+ */
+@Service
+@DependsOn("entityManagerFactory") // calificacion la crea Hibernate (ddl-auto); el historial y su trigger van después
+@RequiredArgsConstructor
+public class HistorialCalificacionService {
+
+    private static final DateTimeFormatter SUFIJO_PARTICION = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String SQL_TABLA =
+            "CREATE TABLE calificacion_historial (" +
+            "id bigserial NOT NULL, " +
+            "calificacion_id bigint NOT NULL, " +
+            "estudiante_id bigint NOT NULL, " +
+            "actividad_id bigint NOT NULL, " +
+            "grado_id bigint, " +
+            "materia_id bigint, " +
+            "trimestre_id bigint, " +
+            "nota numeric(5,2), " +
+            "observacion varchar(255), " +
+            "borrada boolean NOT NULL DEFAULT false, " +
+            "autor varchar(255), " +
+            "registrada_en timestamptz NOT NULL DEFAULT now()" +
+            ") PARTITION BY RANGE (registrada_en)";
+
+    // Grado, materia y trimestre salen de las tablas vivas; si ya no están (p. ej. el estudiante se
+    // borró antes que sus notas), de la versión anterior de la misma celda
+    private static final String SQL_FUNCION =
+            "CREATE OR REPLACE FUNCTION calificacion_registrar_historial() RETURNS trigger AS $$ " +
+            "DECLARE " +
+            "  fila calificacion%ROWTYPE; " +
+            "  v_grado bigint; v_materia bigint; v_trimestre bigint; " +
+            "  h_grado bigint; h_materia bigint; h_trimestre bigint; " +
+            "BEGIN " +
+            "IF TG_OP = 'UPDATE' AND NEW.nota IS NOT DISTINCT FROM OLD.nota AND NEW.observacion IS NOT DISTINCT FROM OLD.observacion THEN " +
+            "  RETURN NEW; " +
+            "END IF; " +
+            "IF TG_OP = 'DELETE' THEN fila := OLD; ELSE fila := NEW; END IF; " +
+            "SELECT grado_id INTO v_grado FROM estudiante WHERE id = fila.estudiante_id; " +
+            "SELECT materia_id, trimestre_id INTO v_materia, v_trimestre FROM actividad WHERE id = fila.actividad_id; " +
+            "IF v_grado IS NULL OR v_materia IS NULL THEN " +
+            "  SELECT h.grado_id, h.materia_id, h.trimestre_id INTO h_grado, h_materia, h_trimestre " +
+            "  FROM calificacion_historial h " +
+            "  WHERE h.estudiante_id = fila.estudiante_id AND h.actividad_id = fila.actividad_id " +
+            "  ORDER BY h.registrada_en DESC, h.id DESC LIMIT 1; " +
+            "  v_grado := coalesce(v_grado, h_grado); " +
+            "  IF v_materia IS NULL THEN v_materia := h_materia; v_trimestre := h_trimestre; END IF; " +
+            "END IF; " +
+            "INSERT INTO calificacion_historial (calificacion_id, estudiante_id, actividad_id, grado_id, materia_id, trimestre_id, nota, observacion, borrada, autor) " +
+            "VALUES (fila.id, fila.estudiante_id, fila.actividad_id, v_grado, v_materia, v_trimestre, " +
+            "  CASE WHEN TG_OP = 'DELETE' THEN NULL ELSE fila.nota END, CASE WHEN TG_OP = 'DELETE' THEN NULL ELSE fila.observacion END, " +
+            "  TG_OP = 'DELETE', NULLIF(current_setting('gabus.autor', true), '')); " +
+            "IF TG_OP = 'DELETE' THEN RETURN OLD; END IF; " +
+            "RETURN NEW; " +
+            "END $$ LANGUAGE plpgsql";
+
+    private static final String SQL_HISTORIAL_CELDA =
+            "SELECT calificacion_id, estudiante_id, actividad_id, nota, observacion, borrada, autor, registrada_en " +
+            "FROM calificacion_historial WHERE estudiante_id = ? AND actividad_id = ? " +
+            "ORDER BY registrada_en, id";
+
+    // Grado y materia de la última versión de la celda (para decidir quién puede ver su historial)
+    private static final String SQL_UBICACION_CELDA =
+            "SELECT grado_id, materia_id FROM calificacion_historial WHERE estudiante_id = ? AND actividad_id = ? " +
+            "ORDER BY registrada_en DESC, id DESC LIMIT 1";
+
+    // Última versión de cada celda antes de la fecha; las celdas cuya última versión es un borrado no existían
+    private static final String SQL_LIBRO_A_FECHA =
+            "SELECT * FROM (" +
+            " SELECT DISTINCT ON (h.estudiante_id, h.actividad_id) " +
+            " h.calificacion_id, h.estudiante_id, h.actividad_id, h.nota, h.observacion, h.borrada, h.autor, h.registrada_en " +
+            " FROM calificacion_historial h " +
+            " WHERE h.grado_id = ? AND h.materia_id = ? AND h.trimestre_id = ? AND h.registrada_en < ? " +
+            " ORDER BY h.estudiante_id, h.actividad_id, h.registrada_en DESC, h.id DESC" +
+            ") ultimas WHERE NOT borrada " +
+            "ORDER BY estudiante_id, actividad_id";
+
+    private static final String COLUMNAS =
+            "id, calificacion_id, estudiante_id, actividad_id, grado_id, materia_id, trimestre_id, nota, observacion, borrada, autor, registrada_en";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // Particiones mensuales que se dejan creadas por adelantado (al arrancar y en cada revisión)
+    @Value("${historial.meses-adelantados:12}")
+    private int mesesAdelantados;
+
+    @PostConstruct
+    public void instalar() {
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass('calificacion_historial') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(existe)) {
+            jdbcTemplate.execute(SQL_TABLA);
+            // Red de seguridad: filas fuera de los meses creados
+            jdbcTemplate.execute("CREATE TABLE calificacion_historial_otros PARTITION OF calificacion_historial DEFAULT");
+            jdbcTemplate.execute("CREATE INDEX idx_calificacion_historial_fecha ON calificacion_historial USING brin (registrada_en)");
+            jdbcTemplate.execute("CREATE INDEX idx_calificacion_historial_celda ON calificacion_historial (estudiante_id, actividad_id, registrada_en)");
+        } else {
+            agregarUbicacion();
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_calificacion_historial_libro " +
+                "ON calificacion_historial (grado_id, materia_id, trimestre_id, registrada_en)");
+
+        crearParticionesAdelantadas();
+
+        jdbcTemplate.execute(SQL_FUNCION);
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_calificacion_historial ON calificacion");
+        jdbcTemplate.execute("CREATE TRIGGER trg_calificacion_historial AFTER INSERT OR UPDATE OR DELETE ON calificacion " +
+                "FOR EACH ROW EXECUTE FUNCTION calificacion_registrar_historial()");
+
+        if (!Boolean.TRUE.equals(existe)) {
+            // Punto de partida: las notas que ya había
+            int filas = jdbcTemplate.update(
+                    "INSERT INTO calificacion_historial (calificacion_id, estudiante_id, actividad_id, grado_id, materia_id, trimestre_id, nota, observacion, autor) " +
+                    "SELECT c.id, c.estudiante_id, c.actividad_id, e.grado_id, a.materia_id, a.trimestre_id, c.nota, c.observacion, 'migración' " +
+                    "FROM calificacion c JOIN estudiante e ON e.id = c.estudiante_id JOIN actividad a ON a.id = c.actividad_id");
+            System.out.println("Historial de calificaciones creado con " + filas + " notas existentes");
+        }
+    }
+
+    // Historial creado antes de las columnas de grado, materia y trimestre: se agregan y se completan una vez
+    private void agregarUbicacion() {
+        Boolean tiene = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                "WHERE table_name = 'calificacion_historial' AND column_name = 'materia_id')", Boolean.class);
+        if (Boolean.TRUE.equals(tiene)) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE calificacion_historial " +
+                "ADD COLUMN grado_id bigint, ADD COLUMN materia_id bigint, ADD COLUMN trimestre_id bigint");
+        jdbcTemplate.update("UPDATE calificacion_historial h SET grado_id = e.grado_id " +
+                "FROM estudiante e WHERE e.id = h.estudiante_id");
+        int filas = jdbcTemplate.update("UPDATE calificacion_historial h SET materia_id = a.materia_id, trimestre_id = a.trimestre_id " +
+                "FROM actividad a WHERE a.id = h.actividad_id");
+        // Actividades ya borradas: su lápida conserva materia y trimestre
+        filas += jdbcTemplate.update("UPDATE calificacion_historial h SET materia_id = b.materia_id, trimestre_id = b.trimestre_id " +
+                "FROM actividad_borrada b WHERE b.id = h.actividad_id AND h.materia_id IS NULL");
+        System.out.println("Historial: grado, materia y trimestre completados en " + filas + " filas");
+    }
+
+    // Mantiene siempre mesesAdelantados meses por delante aunque la aplicación no se reinicie
+    @Scheduled(cron = "${historial.particiones.cron:0 15 3 * * *}")
+    public void crearParticionesAdelantadas() {
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelantados; i++) {
+            try {
+                crearParticion(actual.plusMonths(i));
+            } catch (RuntimeException e) {
+                System.err.println("Historial: no se pudo crear la partición de " + actual.plusMonths(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void crearParticion(YearMonth mes) {
+        String nombre = "calificacion_historial_" + mes.format(SUFIJO_PARTICION);
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, nombre);
+        if (Boolean.TRUE.equals(existe)) {
+            return;
+        }
+        Timestamp desde = Timestamp.valueOf(mes.atDay(1).atStartOfDay());
+        Timestamp hasta = Timestamp.valueOf(mes.plusMonths(1).atDay(1).atStartOfDay());
+        String sqlParticion = "CREATE TABLE " + nombre + " PARTITION OF calificacion_historial " +
+                "FOR VALUES FROM ('" + desde + "') TO ('" + hasta + "')";
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Nadie escribe en el historial mientras se reorganiza (los triggers esperan al bloqueo)
+            jdbcTemplate.execute("LOCK TABLE calificacion_historial IN ACCESS EXCLUSIVE MODE");
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, nombre))) {
+                return; // Otra instancia la creó mientras se esperaba el bloqueo
+            }
+
+            Boolean ocupado = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM calificacion_historial_otros WHERE registrada_en >= ? AND registrada_en < ?)",
+                    Boolean.class, desde, hasta);
+            if (!Boolean.TRUE.equals(ocupado)) {
+                jdbcTemplate.execute(sqlParticion);
+                return;
+            }
+
+            // PostgreSQL no deja crear la partición si la DEFAULT ya tiene filas de ese mes:
+            // se separa la DEFAULT, se crea el mes, se mudan sus filas y se vuelve a adjuntar
+            jdbcTemplate.execute("ALTER TABLE calificacion_historial DETACH PARTITION calificacion_historial_otros");
+            jdbcTemplate.execute(sqlParticion);
+            int movidas = jdbcTemplate.update(
+                    "INSERT INTO " + nombre + " (" + COLUMNAS + ") SELECT " + COLUMNAS +
+                    " FROM calificacion_historial_otros WHERE registrada_en >= ? AND registrada_en < ?", desde, hasta);
+            jdbcTemplate.update("DELETE FROM calificacion_historial_otros WHERE registrada_en >= ? AND registrada_en < ?", desde, hasta);
+            jdbcTemplate.execute("ALTER TABLE calificacion_historial ATTACH PARTITION calificacion_historial_otros DEFAULT");
+            System.out.println("Historial: creada " + nombre + " con " + movidas + " filas movidas desde la partición por defecto");
+        });
+    }
+
+    // Usuario al que se atribuyen los cambios de notas de la transacción actual
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarAutor() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String autor = auth != null ? auth.getName() : "";
+        jdbcTemplate.query("SELECT set_config('gabus.autor', ?, true)", (RowCallbackHandler) rs -> {}, autor);
+    }
+
+    // Todas las versiones de una celda, de la más antigua a la más nueva
+    public List<HistorialCalificacionDTO> historialDeCelda(Long estudianteId, Long actividadId) {
+        return jdbcTemplate.query(SQL_HISTORIAL_CELDA, this::mapear, estudianteId, actividadId);
+    }
+
+    // Vacío si la celda no tiene historial; sirve aunque la actividad o el estudiante ya no existan
+    public Optional<UbicacionCelda> ubicacionDeCelda(Long estudianteId, Long actividadId) {
+        return jdbcTemplate.query(SQL_UBICACION_CELDA,
+                (rs, fila) -> new UbicacionCelda(rs.getObject("grado_id", Long.class), rs.getObject("materia_id", Long.class)),
+                estudianteId, actividadId).stream().findFirst();
+    }
+
+    public record UbicacionCelda(Long gradoId, Long materiaId) {}
+
+    // Notas de un grado, materia y trimestre tal como estaban al terminar el día indicado
+    public List<HistorialCalificacionDTO> libroAFecha(Long gradoId, Long materiaId, Long trimestreId, LocalDate fecha) {
+        Timestamp limite = Timestamp.valueOf(fecha.plusDays(1).atStartOfDay());
+        return jdbcTemplate.query(SQL_LIBRO_A_FECHA, this::mapear, gradoId, materiaId, trimestreId, limite);
+    }
+
+    private HistorialCalificacionDTO mapear(ResultSet rs, int fila) throws SQLException {
+        return HistorialCalificacionDTO.builder()
+                .calificacionId(rs.getLong("calificacion_id"))
+                .estudianteId(rs.getLong("estudiante_id"))
+                .actividadId(rs.getLong("actividad_id"))
+                .nota(rs.getBigDecimal("nota"))
+                .observacion(rs.getString("observacion"))
+                .borrada(rs.getBoolean("borrada"))
+                .autor(rs.getString("autor"))
+                .registradaEn(rs.getTimestamp("registrada_en").toLocalDateTime())
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Libro de notas de un grado en una materia y trimestre, en formato columnar.
+ * Fila i = estudianteIds[i], columna j = actividadIds[j]; la nota está en notas[i * actividadIds.size() + j]
+ * (null si no tiene nota). Las actividades van en orden de árbol: cada padre antes de sus sub-actividades.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LibroNotasDTO {
+    // Filas
+    private List<Long> estudianteIds;
+    private List<String> nombres;
+    private List<String> apellidos;
+
+    // Columnas
+    private List<Long> actividadIds;
+    private List<String> actividadNombres;
+    private List<BigDecimal> ponderaciones;
+    private List<Boolean> promedia;
+    private List<Integer> padres; // Índice de la columna padre, -1 si es actividad principal
+
+    // Celdas (denso, por filas)
+    private List<BigDecimal> notas;
+
+    // Nota ponderada del trimestre por estudiante, calculada sobre el árbol de actividades
+    private List<BigDecimal> totales;
+}
@@ -0,0 +1,85 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import dev.gabus.dto.Actividad.ActividadNodoView;
+import dev.gabus.dto.Actividad.ActividadRepository;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.ArbolActividades;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.Evaluador;
+import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Estudiante.EstudianteResumenView;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Arma el libro de notas (estudiantes × actividades) de un grado, materia y trimestre.
+ * Siempre son tres consultas (estudiantes, actividades y notas), sin importar el tamaño del grado.
+ */
+@Service
+@RequiredArgsConstructor
+public class LibroNotasService {
+
+    private final EstudianteRepository estudianteRepository;
+    private final ActividadRepository actividadRepository;
+    private final CalificacionRepository calificacionRepository;
+    private final CalculadoraNotas calculadoraNotas;
+
+    public LibroNotasDTO obtenerLibro(Long gradoId, Long materiaId, Long trimestreId) {
+        List<EstudianteResumenView> estudiantes = estudianteRepository.findResumenByGradoId(gradoId);
+        ArbolActividades arbol = calculadoraNotas.compilar(actividadRepository.findNodosByMateriaIdAndTrimestreId(materiaId, trimestreId));
+        List<NotaCeldaView> celdas = calificacionRepository.findCeldas(gradoId, materiaId, trimestreId);
+
+        int filas = estudiantes.size();
+        int nCol = arbol.tamano();
+
+        Map<Long, Integer> filaDe = new HashMap<>();
+        for (int i = 0; i < filas; i++) {
+            filaDe.put(estudiantes.get(i).getId(), i);
+        }
+
+        long[] notas = new long[filas * nCol];
+        Arrays.fill(notas, CalculadoraNotas.SIN_NOTA);
+        for (NotaCeldaView celda : celdas) {
+            Integer i = filaDe.get(celda.getEstudianteId());
+            int j = arbol.columnaDe(celda.getActividadId());
+            if (i != null && j >= 0) {
+                notas[i * nCol + j] = CalculadoraNotas.aCentesimas(celda.getNota());
+            }
+        }
+
+        Evaluador evaluador = arbol.nuevoEvaluador();
+        List<BigDecimal> totales = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            totales.add(CalculadoraNotas.deCentesimas(evaluador.evaluar(notas, i * nCol)));
+        }
+
+        List<BigDecimal> notasDecimales = new ArrayList<>(notas.length);
+        for (long nota : notas) {
+            notasDecimales.add(CalculadoraNotas.deCentesimas(nota));
+        }
+        List<Integer> padres = new ArrayList<>(nCol);
+        for (int j = 0; j < nCol; j++) {
+            padres.add(arbol.padreDe(j));
+        }
+
+        List<ActividadNodoView> columnas = arbol.getColumnas();
+        return LibroNotasDTO.builder()
+                .estudianteIds(estudiantes.stream().map(EstudianteResumenView::getId).toList())
+                .nombres(estudiantes.stream().map(EstudianteResumenView::getNombres).toList())
+                .apellidos(estudiantes.stream().map(EstudianteResumenView::getApellidos).toList())
+                .actividadIds(columnas.stream().map(ActividadNodoView::getId).toList())
+                .actividadNombres(columnas.stream().map(ActividadNodoView::getNombre).toList())
+                .ponderaciones(columnas.stream().map(ActividadNodoView::getPonderacion).toList())
+                .promedia(columnas.stream().map(a -> Boolean.TRUE.equals(a.getPromedia())).toList())
+                .padres(padres)
+                .notas(notasDecimales)
+                .totales(totales)
+                .build();
+    }
+}
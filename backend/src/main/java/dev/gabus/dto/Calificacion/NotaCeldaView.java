@@ -0,0 +1,10 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+
+// Proyección: una celda del libro de notas (estudiante, actividad, nota)
+public interface NotaCeldaView {
+    Long getEstudianteId();
+    Long getActividadId();
+    BigDecimal getNota();
+}
@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Builder
-@AllArgsConstructor
+@AllArgsConstructor // Orden de campos usado por CalificacionRepository.findPlanilla
 @NoArgsConstructor
 public class PlanillaItemDTO {
     private Long estudianteId;
@@ -0,0 +1,76 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import dev.gabus.dto.Actividad.ActividadRepository;
+import dev.gabus.dto.Estudiante.EstudianteRepository;
+import dev.gabus.dto.Promedio.PromedioTrimestreService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Guardado de una planilla completa (todas las notas de una actividad) en una sola transacción.
+ * Los ids se validan con una consulta para todo el lote y las notas se escriben con un único
+ * batch JDBC de INSERT ... ON CONFLICT, en lugar de buscar y guardar nota por nota.
+ */
+@Service
+@RequiredArgsConstructor
+public class PlanillaService {
+
+    private static final String SQL_UPSERT =
+            "INSERT INTO calificacion (estudiante_id, actividad_id, nota, observacion) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (estudiante_id, actividad_id) DO UPDATE SET nota = EXCLUDED.nota, observacion = EXCLUDED.observacion";
+
+    private static final int[] TIPOS_UPSERT = { Types.BIGINT, Types.BIGINT, Types.NUMERIC, Types.VARCHAR };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActividadRepository actividadRepository;
+    private final EstudianteRepository estudianteRepository;
+    private final PromedioTrimestreService promedioTrimestreService;
+    private final HistorialCalificacionService historialCalificacionService;
+
+    // Devuelve los ids de los estudiantes cuyas notas se guardaron
+    @Transactional
+    public Set<Long> guardarPlanilla(Long actividadId, List<NotaPlanilla> notas) {
+        if (!actividadRepository.existsById(actividadId)) {
+            throw new IllegalArgumentException("Actividad no encontrada: " + actividadId);
+        }
+
+        // Si un estudiante viene repetido gana la última nota (ON CONFLICT no admite dos filas con la misma clave)
+        Map<Long, NotaPlanilla> porEstudiante = new LinkedHashMap<>();
+        for (NotaPlanilla nota : notas) {
+            porEstudiante.put(nota.estudianteId(), nota);
+        }
+        if (porEstudiante.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Long> faltantes = new HashSet<>(porEstudiante.keySet());
+        faltantes.removeAll(estudianteRepository.findIdsExistentes(porEstudiante.keySet()));
+        if (!faltantes.isEmpty()) {
+            throw new IllegalArgumentException("Estudiantes no encontrados: " + faltantes);
+        }
+
+        List<Object[]> filas = new ArrayList<>(porEstudiante.size());
+        for (NotaPlanilla nota : porEstudiante.values()) {
+            filas.add(new Object[] { nota.estudianteId(), actividadId, nota.nota(), nota.observacion() });
+        }
+        historialCalificacionService.registrarAutor();
+        jdbcTemplate.batchUpdate(SQL_UPSERT, filas, TIPOS_UPSERT);
+        promedioTrimestreService.recalcular(actividadId, porEstudiante.keySet());
+
+        return porEstudiante.keySet();
+    }
+
+    public record NotaPlanilla(Long estudianteId, BigDecimal nota, String observacion) {}
+}
@@ -0,0 +1,13 @@
+package dev.gabus.dto.Calificacion;
+
+import java.math.BigDecimal;
+
+// Proyección: sumas ponderadas de un estudiante en una materia y trimestre, calculadas en la base de datos
+public interface SumaTrimestreView {
+    Long getEstudianteId();
+    Long getMateriaId();
+    String getMateria();
+    Long getTrimestreId();
+    BigDecimal getSumaPonderada();     // SUM(nota * ponderacion)
+    BigDecimal getSumaPonderaciones(); // SUM(ponderacion)
+}
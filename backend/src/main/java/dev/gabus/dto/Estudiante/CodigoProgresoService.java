@@ -0,0 +1,127 @@
+package dev.gabus.dto.Estudiante;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Asigna códigos de progreso (8 caracteres) en el servidor.
+ *
+ * Los números salen de la secuencia codigo_progreso_seq, que avanza de a BLOQUE: cada nextval reserva
+ * un bloque entero para esta instancia, así que asignar mil códigos es una sola consulta. Cada número
+ * se pasa por una permutación de 40 bits con clave (red de Feistel) y se escribe en base 32: números
+ * distintos dan códigos distintos, pero los códigos consecutivos no se pueden adivinar uno a partir
+ * de otro (el código da acceso público al progreso del estudiante).
+ * Un código cargado a mano puede coincidir con uno generado: quien asigna debe verificarlo en la tabla.
+ */
+@Service
+public class CodigoProgresoService {
+
+    static final int BLOQUE = 1000;
+
+    // Base 32 de Crockford: sin I, L, O ni U, que se confunden al dictarlos o copiarlos (en orden, para binarySearch)
+    private static final char[] ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int RONDAS = 4;
+    private static final long MASCARA_20 = (1L << 20) - 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int[] claves = new int[RONDAS];
+
+    // Bloque reservado en memoria: [siguiente, finBloque)
+    private long siguiente;
+    private long finBloque;
+
+    public CodigoProgresoService(JdbcTemplate jdbcTemplate, @Value("${progreso.codigo.clave}") String clave) {
+        this.jdbcTemplate = jdbcTemplate;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(clave.getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < RONDAS; i++) {
+                claves[i] = ((hash[4 * i] & 0xFF) << 24) | ((hash[4 * i + 1] & 0xFF) << 16) | ((hash[4 * i + 2] & 0xFF) << 8) | (hash[4 * i + 3] & 0xFF);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    @PostConstruct
+    public void crearSecuencia() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS codigo_progreso_seq START WITH 1 INCREMENT BY " + BLOQUE);
+    }
+
+    public synchronized String siguiente() {
+        if (siguiente >= finBloque) {
+            Long inicio = jdbcTemplate.queryForObject("SELECT nextval('codigo_progreso_seq')", Long.class);
+            siguiente = inicio;
+            finBloque = inicio + BLOQUE;
+        }
+        return codificar(siguiente++);
+    }
+
+    public synchronized List<String> siguientes(int cantidad) {
+        List<String> codigos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            codigos.add(siguiente());
+        }
+        return codigos;
+    }
+
+    // Permutación de los 40 bits bajos del número y escritura en 8 caracteres de 5 bits
+    String codificar(long numero) {
+        long izquierda = (numero >>> 20) & MASCARA_20;
+        long derecha = numero & MASCARA_20;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long nueva = izquierda ^ mezclar(derecha, claves[ronda]);
+            izquierda = derecha;
+            derecha = nueva;
+        }
+        long valor = (izquierda << 20) | derecha;
+
+        char[] codigo = new char[8];
+        for (int i = 7; i >= 0; i--) {
+            codigo[i] = ALFABETO[(int) (valor & 31)];
+            valor >>>= 5;
+        }
+        return new String(codigo);
+    }
+
+    // Inversa de codificar: el número del que salió un código (IllegalArgumentException si no es un código válido)
+    long decodificar(String codigo) {
+        if (codigo == null || codigo.length() != 8) {
+            throw new IllegalArgumentException("Código de progreso inválido: " + codigo);
+        }
+        long valor = 0;
+        for (int i = 0; i < 8; i++) {
+            int digito = Arrays.binarySearch(ALFABETO, codigo.charAt(i));
+            if (digito < 0) {
+                throw new IllegalArgumentException("Código de progreso inválido: " + codigo);
+            }
+            valor = (valor << 5) | digito;
+        }
+
+        long izquierda = valor >>> 20;
+        long derecha = valor & MASCARA_20;
+        for (int ronda = RONDAS - 1; ronda >= 0; ronda--) {
+            long anterior = derecha ^ mezclar(izquierda, claves[ronda]);
+            derecha = izquierda;
+            izquierda = anterior;
+        }
+        return (izquierda << 20) | derecha;
+    }
+
+    private static long mezclar(long mitad, int clave) {
+        long x = (mitad ^ clave) * 0x9E3779B1L;
+        x ^= x >>> 15;
+        x *= 0x85EBCA6BL;
+        x ^= x >>> 13;
+        return x & MASCARA_20;
+    }
+}
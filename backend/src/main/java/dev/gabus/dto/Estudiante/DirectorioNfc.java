@@ -0,0 +1,153 @@
+package dev.gabus.dto.Estudiante;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import dev.gabus.dto.Grado.Grado;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Directorio en memoria de tarjetas NFC: de cada tag al estudiante, su grado y el profesor del grado,
+ * y de cada estudiante a su grado y su tag. Con esto, un toque en la terminal (asistencia, tokens)
+ * se resuelve y se valida el permiso del profesor sin consultar la base de datos; los tags
+ * desconocidos se descartan también sin consulta.
+ *
+ * Se carga al arrancar con una sola lectura de estudiante (más la tabla grado) y se mantiene al día
+ * desde las altas, bajas y cambios de estudiantes, grados y tarjetas. También lleva el conjunto de
+ * estudiantes que todavía no tienen tarjeta.
+ * Las lecturas no se bloquean; las escrituras se hacen de a una (synchronized).
+ */
+@Component
+@DependsOn("entityManagerFactory") // La tabla la crea Hibernate (ddl-auto)
+public class DirectorioNfc {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Long> estudiantePorTag = new ConcurrentHashMap<>();
+    private final Map<Long, Ficha> fichas = new ConcurrentHashMap<>();
+    // Grado -> profesor (Long.MIN_VALUE si el grado no tiene profesor; ConcurrentHashMap no admite null)
+    private final Map<Long, Long> profesorPorGrado = new ConcurrentHashMap<>();
+    private final Set<Long> sinTarjeta = ConcurrentHashMap.newKeySet();
+
+    private static final Long SIN_PROFESOR = Long.MIN_VALUE;
+
+    public DirectorioNfc(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public synchronized void cargar() {
+        jdbcTemplate.query("SELECT id, profesor_id FROM grado", rs -> {
+            Long profesorId = rs.getObject("profesor_id", Long.class);
+            profesorPorGrado.put(rs.getLong("id"), profesorId != null ? profesorId : SIN_PROFESOR);
+        });
+        jdbcTemplate.query("SELECT id, grado_id, nfc_id FROM estudiante", rs -> {
+            registrar(rs.getLong("id"), rs.getLong("grado_id"), rs.getString("nfc_id"));
+        });
+        System.out.println("Directorio NFC: " + estudiantePorTag.size() + " tarjetas, " + sinTarjeta.size() + " estudiantes sin tarjeta");
+    }
+
+    // Estudiante, grado y profesor del tag; vacío si el tag no está asignado
+    public Optional<Tarjeta> buscar(String nfcId) {
+        if (nfcId == null) {
+            return Optional.empty();
+        }
+        Long estudianteId = estudiantePorTag.get(nfcId);
+        return estudianteId == null ? Optional.empty() : tarjetaDe(estudianteId);
+    }
+
+    // Grado, profesor y tag (si tiene) de un estudiante; vacío si el estudiante no existe
+    public Optional<Tarjeta> buscarEstudiante(Long estudianteId) {
+        return tarjetaDe(estudianteId);
+    }
+
+    public boolean tagAsignado(String nfcId) {
+        return estudiantePorTag.containsKey(nfcId);
+    }
+
+    // Estudiantes sin tarjeta; con profesorId, solo los de sus grados
+    public int cantidadSinTarjeta(Long profesorId) {
+        if (profesorId == null) {
+            return sinTarjeta.size();
+        }
+        int cantidad = 0;
+        for (Long estudianteId : sinTarjeta) {
+            Ficha ficha = fichas.get(estudianteId);
+            if (ficha != null && ficha.gradoId() != null && profesorId.equals(profesorPorGrado.get(ficha.gradoId()))) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    public Set<Long> sinTarjeta() {
+        return Collections.unmodifiableSet(sinTarjeta);
+    }
+
+    // Alta o cambio de un estudiante (grado o tag)
+    public synchronized void actualizar(Long estudianteId, Long gradoId, String nfcId) {
+        registrar(estudianteId, gradoId, nfcId);
+    }
+
+    public void actualizar(Estudiante estudiante) {
+        actualizar(estudiante.getId(), estudiante.getGrado() != null ? estudiante.getGrado().getId() : null, estudiante.getNfcId());
+    }
+
+    public synchronized void quitar(Long estudianteId) {
+        Ficha anterior = fichas.remove(estudianteId);
+        sinTarjeta.remove(estudianteId);
+        if (anterior != null && anterior.nfcId() != null) {
+            estudiantePorTag.remove(anterior.nfcId(), estudianteId);
+        }
+    }
+
+    public void actualizarGrado(Grado grado) {
+        profesorPorGrado.put(grado.getId(), grado.getProfesor() != null ? grado.getProfesor().getId() : SIN_PROFESOR);
+    }
+
+    public void quitarGrado(Long gradoId) {
+        profesorPorGrado.remove(gradoId);
+    }
+
+    private Optional<Tarjeta> tarjetaDe(Long estudianteId) {
+        Ficha ficha = fichas.get(estudianteId);
+        if (ficha == null) {
+            return Optional.empty();
+        }
+        Long profesorId = ficha.gradoId() != null ? profesorPorGrado.get(ficha.gradoId()) : null;
+        return Optional.of(new Tarjeta(estudianteId, ficha.gradoId(),
+                SIN_PROFESOR.equals(profesorId) ? null : profesorId, ficha.nfcId()));
+    }
+
+    // Primero se publica lo nuevo y después se quita lo viejo: una lectura concurrente nunca ve al estudiante ausente
+    private void registrar(Long estudianteId, Long gradoId, String nfcId) {
+        Ficha anterior = fichas.put(estudianteId, new Ficha(gradoId, nfcId));
+        if (nfcId != null) {
+            estudiantePorTag.put(nfcId, estudianteId);
+            sinTarjeta.remove(estudianteId);
+        } else {
+            sinTarjeta.add(estudianteId);
+        }
+        if (anterior != null && anterior.nfcId() != null && !anterior.nfcId().equals(nfcId)) {
+            estudiantePorTag.remove(anterior.nfcId(), estudianteId);
+        }
+    }
+
+    private record Ficha(Long gradoId, String nfcId) {}
+
+    // profesorId es null si el grado no tiene profesor asignado
+    public record Tarjeta(Long estudianteId, Long gradoId, Long profesorId, String nfcId) {
+
+        // Mismo criterio que canAccessGrado de los controladores (ADMIN se verifica antes)
+        public boolean esDelProfesor(Long usuarioId) {
+            return profesorId != null && profesorId.equals(usuarioId);
+        }
+    }
+}
@@ -24,7 +24,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Entity
 @Table(name = "estudiante", indexes = {
-    @Index(name = "idx_codigo_progreso", columnList = "codigo_progreso", unique = true)
+    @Index(name = "idx_codigo_progreso", columnList = "codigo_progreso", unique = true),
+    // Listados de un grado en orden alfabético (planilla)
+    @Index(name = "idx_estudiante_grado_apellidos", columnList = "grado_id, apellidos, nombres, id")
 })
 public class Estudiante {
     @Id
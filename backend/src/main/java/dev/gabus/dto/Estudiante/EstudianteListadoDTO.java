@@ -0,0 +1,24 @@
+package dev.gabus.dto.Estudiante;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila plana de los listados de estudiantes: el grado va como id y nombre, sin entidades Grado ni Usuario
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstudianteListadoDTO {
+    private Long id;
+    private String nombres;
+    private String apellidos;
+    private String email;
+    private String codigoProgreso;
+    private String nfcId;
+    private Integer saldoTokens;
+    private Long gradoId;
+    private String gradoNivel;
+    private String gradoSeccion;
+}
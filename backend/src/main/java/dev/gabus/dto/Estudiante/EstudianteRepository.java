@@ -1,17 +1,31 @@
 package dev.gabus.dto.Estudiante;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface EstudianteRepository extends JpaRepository<Estudiante, Long> {
 
     List<Estudiante> findByGrado_Id(Long gradoId);
+
+    // Para los boletines por lote: ordenados como se imprimen
+    List<Estudiante> findByGrado_IdOrderByApellidosAscNombresAsc(Long gradoId);
+
+    List<Estudiante> findByGrado_AnioEscolarOrderByGrado_IdAscApellidosAscNombresAsc(int anioEscolar);
     
-    Optional<Estudiante> findByNfcId(String nfcId);
+    // Estudiantes de un grado sin cargar entidades (libro de notas)
+    @Query("SELECT e.id AS id, e.nombres AS nombres, e.apellidos AS apellidos FROM Estudiante e " +
+           "WHERE e.grado.id = :gradoId ORDER BY e.apellidos, e.nombres, e.id")
+    List<EstudianteResumenView> findResumenByGradoId(@Param("gradoId") Long gradoId);
+
+    // De los ids recibidos, los que existen (validación en bloque de una planilla)
+    @Query("SELECT e.id FROM Estudiante e WHERE e.id IN :ids")
+    List<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 
     Optional<Estudiante> findByCodigoProgreso(String codigoProgreso);
 
-    List<Estudiante> findByNfcIdIsNull();
 }
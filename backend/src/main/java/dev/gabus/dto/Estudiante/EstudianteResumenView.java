@@ -0,0 +1,8 @@
+package dev.gabus.dto.Estudiante;
+
+// Proyección: solo id y nombre del estudiante (sin cargar el grado)
+public interface EstudianteResumenView {
+    Long getId();
+    String getNombres();
+    String getApellidos();
+}
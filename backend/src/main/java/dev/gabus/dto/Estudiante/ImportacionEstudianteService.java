@@ -0,0 +1,375 @@
+package dev.gabus.dto.Estudiante;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Alta masiva de estudiantes desde un CSV (con encabezado nombres, apellidos, email, gradoId) o un
+ * NDJSON (un objeto con esos campos por línea).
+ *
+ * El archivo se lee a medida que llega y se procesa en lotes de importacion.tamano-lote filas: por
+ * lote, una consulta para los grados que todavía no se vieron, una para los emails ya registrados,
+ * códigos de progreso asignados desde bloques reservados (CodigoProgresoService) y un único batch
+ * JDBC de INSERT en su propia transacción. En memoria solo queda el lote actual y el informe.
+ * Una fila inválida no frena a las demás: queda en el informe con su motivo.
+ */
+@Service
+public class ImportacionEstudianteService {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO estudiante (nombres, apellidos, email, codigo_progreso, grado_id, saldo_tokens) " +
+            "VALUES (?, ?, ?, ?, ?, 0) ON CONFLICT DO NOTHING";
+
+    private static final int LARGO_MAXIMO = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CodigoProgresoService codigoProgresoService;
+    private final IndiceBusquedaEstudiantes indiceBusquedaEstudiantes;
+    private final DirectorioNfc directorioNfc;
+
+    // Filas por lote (y por batch JDBC)
+    @Value("${importacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    public ImportacionEstudianteService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                        ObjectMapper objectMapper, CodigoProgresoService codigoProgresoService,
+                                        IndiceBusquedaEstudiantes indiceBusquedaEstudiantes, DirectorioNfc directorioNfc) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.codigoProgresoService = codigoProgresoService;
+        this.indiceBusquedaEstudiantes = indiceBusquedaEstudiantes;
+        this.directorioNfc = directorioNfc;
+    }
+
+    /**
+     * Importa un CSV. La fila del informe es la del registro en el archivo (el encabezado es la 1).
+     * @param profesorId null para ADMIN; si no, solo se aceptan grados de ese profesor
+     */
+    public ImportacionEstudiantesDTO importarCsv(InputStream entrada, Long profesorId) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        LectorCsv lector = new LectorCsv(reader);
+
+        List<String> encabezado = lector.siguienteRegistro();
+        if (encabezado == null) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            columnas.put(normalizarColumna(encabezado.get(i)), i);
+        }
+        for (String requerida : List.of("nombres", "apellidos", "gradoid")) {
+            if (!columnas.containsKey(requerida)) {
+                throw new IllegalArgumentException("Falta la columna '" + requerida + "' en el encabezado");
+            }
+        }
+
+        Importacion importacion = new Importacion(profesorId);
+        int fila = 1;
+        List<String> registro;
+        while ((registro = lector.siguienteRegistro()) != null) {
+            fila++;
+            if (registro.size() == 1 && registro.get(0).isBlank()) {
+                continue; // Línea vacía
+            }
+            importacion.agregar(new Fila(fila,
+                    campo(registro, columnas.get("nombres")),
+                    campo(registro, columnas.get("apellidos")),
+                    campo(registro, columnas.get("email")),
+                    campo(registro, columnas.get("gradoid"))));
+        }
+        return importacion.terminar();
+    }
+
+    /**
+     * Importa un NDJSON. La fila del informe es la posición del objeto en el archivo (desde 1).
+     * Si una línea no es JSON válido, se guarda lo leído hasta ahí y la importación termina en esa fila.
+     */
+    public ImportacionEstudiantesDTO importarNdjson(InputStream entrada, Long profesorId) throws IOException {
+        Importacion importacion = new Importacion(profesorId);
+        int fila = 0;
+        try (MappingIterator<JsonNode> objetos = objectMapper.readerFor(JsonNode.class).readValues(entrada)) {
+            while (objetos.hasNextValue()) {
+                fila++;
+                JsonNode objeto = objetos.nextValue();
+                importacion.agregar(new Fila(fila,
+                        texto(objeto, "nombres"), texto(objeto, "apellidos"), texto(objeto, "email"), texto(objeto, "gradoId")));
+            }
+        } catch (JsonProcessingException e) {
+            importacion.rechazar(fila + 1, "JSON inválido; la importación se detuvo en esta fila: " + e.getOriginalMessage());
+        }
+        return importacion.terminar();
+    }
+
+    // Estado de una importación: el lote pendiente, lo ya resuelto (grados, emails) y el informe
+    private class Importacion {
+        private final Long profesorId;
+        private final List<Fila> lote = new ArrayList<>();
+        private final List<ResultadoFilaImportacionDTO> resultados = new ArrayList<>();
+        // Grados ya consultados: id -> profesor_id (null si el grado no tiene profesor)
+        private final Map<Long, Long> profesorPorGrado = new HashMap<>();
+        private final Set<Long> gradosInexistentes = new HashSet<>();
+        private final Set<String> emailsVistos = new HashSet<>();
+        private int importados;
+
+        Importacion(Long profesorId) {
+            this.profesorId = profesorId;
+        }
+
+        void agregar(Fila fila) {
+            lote.add(fila);
+            if (lote.size() >= Math.max(1, tamanoLote)) {
+                procesarLote();
+            }
+        }
+
+        void rechazar(int fila, String mensaje) {
+            procesarLote();
+            resultados.add(error(fila, mensaje));
+        }
+
+        ImportacionEstudiantesDTO terminar() {
+            procesarLote();
+            return ImportacionEstudiantesDTO.builder()
+                    .importados(importados)
+                    .errores(resultados.size() - importados)
+                    .filas(resultados)
+                    .build();
+        }
+
+        private void procesarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            resolverGrados();
+
+            // Validación fila por fila; las válidas siguen en 'validas', el resto va directo al informe
+            Map<Integer, ResultadoFilaImportacionDTO> informe = new HashMap<>();
+            List<Fila> validas = new ArrayList<>();
+            for (Fila fila : lote) {
+                String mensaje = validar(fila);
+                if (mensaje != null) {
+                    informe.put(fila.numero, error(fila.numero, mensaje));
+                } else {
+                    validas.add(fila);
+                }
+            }
+
+            // Emails que ya tiene otro estudiante
+            Set<String> registrados = valoresExistentes("email",
+                    validas.stream().map(f -> f.email).filter(e -> e != null).toList());
+            validas.removeIf(fila -> {
+                if (fila.email != null && registrados.contains(fila.email)) {
+                    informe.put(fila.numero, error(fila.numero, "El email " + fila.email + " ya está registrado"));
+                    return true;
+                }
+                return false;
+            });
+
+            asignarCodigos(validas);
+            insertar(validas, informe);
+
+            for (Fila fila : lote) {
+                resultados.add(informe.get(fila.numero));
+            }
+            lote.clear();
+        }
+
+        // Una consulta por lote, solo para los grados que no aparecieron en lotes anteriores
+        private void resolverGrados() {
+            Set<Long> nuevos = new HashSet<>();
+            for (Fila fila : lote) {
+                Long gradoId = fila.gradoIdNumerico();
+                if (gradoId != null && !profesorPorGrado.containsKey(gradoId) && !gradosInexistentes.contains(gradoId)) {
+                    nuevos.add(gradoId);
+                }
+            }
+            if (nuevos.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.query("SELECT id, profesor_id FROM grado WHERE id IN (" + marcadores(nuevos.size()) + ")",
+                    rs -> { profesorPorGrado.put(rs.getLong("id"), rs.getObject("profesor_id", Long.class)); },
+                    nuevos.toArray());
+            nuevos.removeAll(profesorPorGrado.keySet());
+            gradosInexistentes.addAll(nuevos);
+        }
+
+        private String validar(Fila fila) {
+            if (fila.nombres == null || fila.apellidos == null) {
+                return "Nombres y apellidos son obligatorios";
+            }
+            if (fila.nombres.length() > LARGO_MAXIMO || fila.apellidos.length() > LARGO_MAXIMO
+                    || (fila.email != null && fila.email.length() > LARGO_MAXIMO)) {
+                return "Un campo supera los " + LARGO_MAXIMO + " caracteres";
+            }
+            if (fila.gradoId == null) {
+                return "El gradoId es obligatorio";
+            }
+            Long gradoId = fila.gradoIdNumerico();
+            if (gradoId == null) {
+                return "gradoId inválido: " + fila.gradoId;
+            }
+            if (gradosInexistentes.contains(gradoId)) {
+                return "Grado no encontrado: " + gradoId;
+            }
+            if (profesorId != null && !profesorId.equals(profesorPorGrado.get(gradoId))) {
+                return "Sin permiso sobre el grado " + gradoId;
+            }
+            if (fila.email != null && !emailsVistos.add(fila.email)) {
+                return "El email " + fila.email + " está repetido en el archivo";
+            }
+            return null;
+        }
+
+        // Un código cargado a mano puede coincidir con uno generado: esos se reemplazan antes de insertar
+        private void asignarCodigos(List<Fila> filas) {
+            List<Fila> pendientes = filas;
+            while (!pendientes.isEmpty()) {
+                List<String> codigos = codigoProgresoService.siguientes(pendientes.size());
+                for (int i = 0; i < pendientes.size(); i++) {
+                    pendientes.get(i).codigo = codigos.get(i);
+                }
+                Set<String> ocupados = valoresExistentes("codigo_progreso", codigos);
+                pendientes = pendientes.stream().filter(f -> ocupados.contains(f.codigo)).toList();
+            }
+        }
+
+        private void insertar(List<Fila> filas, Map<Integer, ResultadoFilaImportacionDTO> informe) {
+            if (filas.isEmpty()) {
+                return;
+            }
+            try {
+                Map<String, Long> ids = transactionTemplate.execute(status -> {
+                    jdbcTemplate.batchUpdate(SQL_INSERTAR, filas, filas.size(), (ps, fila) -> {
+                        ps.setString(1, fila.nombres);
+                        ps.setString(2, fila.apellidos);
+                        ps.setString(3, fila.email);
+                        ps.setString(4, fila.codigo);
+                        ps.setLong(5, fila.gradoIdNumerico());
+                    });
+                    // Con reWriteBatchedInserts el driver no informa filas por sentencia: se buscan por código.
+                    // ON CONFLICT DO NOTHING salta las filas que chocaron con un alta concurrente (email o código).
+                    Map<String, Long> insertados = new HashMap<>();
+                    jdbcTemplate.query("SELECT id, codigo_progreso, nombres, apellidos FROM estudiante WHERE codigo_progreso IN (" + marcadores(filas.size()) + ")",
+                            rs -> { insertados.put(rs.getString("codigo_progreso") + "\n" + rs.getString("nombres") + "\n" + rs.getString("apellidos"), rs.getLong("id")); },
+                            filas.stream().map(f -> f.codigo).toArray());
+                    return insertados;
+                });
+
+                for (Fila fila : filas) {
+                    Long id = ids.get(fila.codigo + "\n" + fila.nombres + "\n" + fila.apellidos);
+                    if (id != null) {
+                        importados++;
+                        indiceBusquedaEstudiantes.actualizar(id, fila.nombres, fila.apellidos, fila.email, fila.codigo, fila.gradoIdNumerico());
+                        directorioNfc.actualizar(id, fila.gradoIdNumerico(), null);
+                        informe.put(fila.numero, ResultadoFilaImportacionDTO.builder()
+                                .fila(fila.numero).importado(true).id(id).codigoProgreso(fila.codigo).build());
+                    } else {
+                        informe.put(fila.numero, error(fila.numero, "Conflicto con un estudiante registrado al mismo tiempo"));
+                    }
+                }
+            } catch (DataAccessException e) {
+                System.err.println("Error al importar un lote de estudiantes: " + e.getMessage());
+                for (Fila fila : filas) {
+                    informe.put(fila.numero, error(fila.numero, "No se pudo guardar el lote de esta fila"));
+                }
+            }
+        }
+
+        private Set<String> valoresExistentes(String columna, Collection<String> valores) {
+            Set<String> existentes = new HashSet<>();
+            if (valores.isEmpty()) {
+                return existentes;
+            }
+            jdbcTemplate.query("SELECT " + columna + " FROM estudiante WHERE " + columna + " IN (" + marcadores(valores.size()) + ")",
+                    rs -> { existentes.add(rs.getString(1)); },
+                    valores.toArray());
+            return existentes;
+        }
+    }
+
+    // Fila leída del archivo, ya sin espacios sobrantes (los campos vacíos quedan en null)
+    private static class Fila {
+        final int numero;
+        final String nombres;
+        final String apellidos;
+        final String email;
+        final String gradoId;
+        String codigo;
+
+        Fila(int numero, String nombres, String apellidos, String email, String gradoId) {
+            this.numero = numero;
+            this.nombres = limpiar(nombres);
+            this.apellidos = limpiar(apellidos);
+            this.email = limpiar(email);
+            this.gradoId = limpiar(gradoId);
+        }
+
+        Long gradoIdNumerico() {
+            if (gradoId == null) {
+                return null;
+            }
+            try {
+                return Long.valueOf(gradoId);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static ResultadoFilaImportacionDTO error(int fila, String mensaje) {
+        return ResultadoFilaImportacionDTO.builder().fila(fila).importado(false).mensaje(mensaje).build();
+    }
+
+    private static String limpiar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String limpio = valor.trim();
+        return limpio.isEmpty() ? null : limpio;
+    }
+
+    // "Grado_Id", "gradoId" y "gradoid" son la misma columna; se descarta la marca BOM de Excel
+    private static String normalizarColumna(String nombre) {
+        return nombre.replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String campo(List<String> registro, Integer columna) {
+        return columna != null && columna < registro.size() ? registro.get(columna) : null;
+    }
+
+    private static String texto(JsonNode objeto, String campo) {
+        JsonNode valor = objeto.get(campo);
+        return valor == null || valor.isNull() ? null : valor.asText();
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+}
@@ -0,0 +1,19 @@
+package dev.gabus.dto.Estudiante;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Informe de POST /api/estudiantes/importar: totales y el resultado de cada fila, en el orden del archivo
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportacionEstudiantesDTO {
+    private int importados;
+    private int errores;
+    private List<ResultadoFilaImportacionDTO> filas;
+}
@@ -0,0 +1,362 @@
+package dev.gabus.dto.Estudiante;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import dev.gabus.dto.Grado.Grado;
+
+/**
+ * Índice en memoria para buscar estudiantes por nombres, apellidos, código de progreso o email,
+ * sin distinguir mayúsculas ni acentos ("jose" encuentra "José").
+ *
+ * Cada texto se parte en palabras normalizadas. Las palabras están ordenadas (TreeMap), así una
+ * búsqueda por prefijo es un recorrido de rango; además cada palabra se indexa por sus trigramas,
+ * que encuentran coincidencias con errores de tipeo ("gonzales" -> "gonzález"). Cada término de
+ * la consulta debe coincidir con alguna palabra del estudiante; el puntaje suma lo bien que coincidió
+ * cada término (palabra exacta > prefijo > trigramas).
+ *
+ * Se arma al arrancar con una sola lectura de la tabla y se mantiene al día desde las altas, cambios
+ * y bajas de estudiantes y grados (EstudianteController, GradoController, importación).
+ */
+@Component
+public class IndiceBusquedaEstudiantes {
+
+    public static final int LIMITE_POR_DEFECTO = 10;
+    public static final int LIMITE_MAXIMO = 50;
+
+    // Igual que el umbral por defecto de pg_trgm
+    private static final double SIMILITUD_MINIMA = 0.3;
+    private static final int FETCH_SIZE = 1000;
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Las búsquedas comparten el bloqueo de lectura; altas, cambios y bajas toman el de escritura
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final Map<Long, Entrada> estudiantes = new HashMap<>();
+    private final Map<Long, GradoInfo> grados = new HashMap<>();
+    // Palabra normalizada -> estudiantes que la tienen
+    private final TreeMap<String, Set<Long>> palabras = new TreeMap<>();
+    // Trigrama -> palabras que lo contienen
+    private final Map<String, Set<String>> trigramas = new HashMap<>();
+    private volatile boolean listo = false;
+
+    public IndiceBusquedaEstudiantes(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // PostgreSQL solo usa un cursor (fetch size) dentro de una transacción
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Índice listo y vacío, sin base de datos (pruebas): se llena con actualizar()
+    static IndiceBusquedaEstudiantes enMemoria() {
+        IndiceBusquedaEstudiantes indice = new IndiceBusquedaEstudiantes(null, null);
+        indice.listo = true;
+        return indice;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        bloqueo.writeLock().lock();
+        try {
+            listo = false;
+            estudiantes.clear();
+            grados.clear();
+            palabras.clear();
+            trigramas.clear();
+
+            jdbcTemplate.query("SELECT id, profesor_id, nivel, seccion FROM grado", rs -> {
+                grados.put(rs.getLong("id"), new GradoInfo(rs.getObject("profesor_id", Long.class), rs.getString("nivel"), rs.getString("seccion")));
+            });
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT id, nombres, apellidos, email, codigo_progreso, grado_id FROM estudiante",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                agregar(rs.getLong("id"), rs.getString("nombres"), rs.getString("apellidos"), rs.getString("email"),
+                        rs.getString("codigo_progreso"), rs.getLong("grado_id"));
+            }));
+            listo = true;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+        System.out.println("Índice de búsqueda de estudiantes: " + estudiantes.size() + " estudiantes, "
+                + palabras.size() + " palabras en " + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    public void actualizar(Estudiante estudiante) {
+        Grado grado = estudiante.getGrado();
+        if (grado != null) {
+            actualizarGrado(grado);
+        }
+        actualizar(estudiante.getId(), estudiante.getNombres(), estudiante.getApellidos(), estudiante.getEmail(),
+                estudiante.getCodigoProgreso(), grado != null ? grado.getId() : null);
+    }
+
+    public void actualizar(Long id, String nombres, String apellidos, String email, String codigoProgreso, Long gradoId) {
+        bloqueo.writeLock().lock();
+        try {
+            quitarSinBloqueo(id);
+            agregar(id, nombres, apellidos, email, codigoProgreso, gradoId);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void quitar(Long id) {
+        bloqueo.writeLock().lock();
+        try {
+            quitarSinBloqueo(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void actualizarGrado(Grado grado) {
+        bloqueo.writeLock().lock();
+        try {
+            grados.put(grado.getId(), new GradoInfo(grado.getProfesor() != null ? grado.getProfesor().getId() : null,
+                    grado.getNivel(), grado.getSeccion()));
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void quitarGrado(Long gradoId) {
+        bloqueo.writeLock().lock();
+        try {
+            grados.remove(gradoId);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Los 'limite' estudiantes con mejor puntaje; a igual puntaje, en orden de apellidos y nombres.
+     * @param profesorId null para buscar en toda la escuela (ADMIN); si no, solo en los grados del profesor
+     * @return vacío mientras el índice todavía se está armando
+     */
+    public Optional<List<ResultadoBusquedaEstudianteDTO>> buscar(String consulta, Long profesorId, int limite) {
+        if (!listo) {
+            return Optional.empty();
+        }
+        List<String> terminos = new ArrayList<>(new LinkedHashSet<>(dividir(consulta)));
+        if (terminos.isEmpty()) {
+            return Optional.of(List.of());
+        }
+
+        bloqueo.readLock().lock();
+        try {
+            Map<Long, Double> puntajes = null;
+            for (String termino : terminos) {
+                Map<Long, Double> delTermino = coincidencias(termino);
+                if (puntajes == null) {
+                    puntajes = delTermino;
+                } else {
+                    Map<Long, Double> ambos = new HashMap<>();
+                    for (Map.Entry<Long, Double> e : puntajes.entrySet()) {
+                        Double otro = delTermino.get(e.getKey());
+                        if (otro != null) {
+                            ambos.put(e.getKey(), e.getValue() + otro);
+                        }
+                    }
+                    puntajes = ambos;
+                }
+                if (puntajes.isEmpty()) {
+                    return Optional.of(List.of());
+                }
+            }
+
+            // Los 'limite' mejores con un montículo de ese tamaño: la cabeza es el peor de los elegidos
+            Comparator<Candidato> orden = Comparator.comparingDouble(Candidato::puntaje)
+                    .thenComparing(Candidato::entrada, Comparator.comparing(Entrada::claveOrden).reversed());
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(limite + 1, orden);
+            for (Map.Entry<Long, Double> e : puntajes.entrySet()) {
+                Entrada entrada = estudiantes.get(e.getKey());
+                if (profesorId != null && !visiblePara(entrada, profesorId)) {
+                    continue;
+                }
+                mejores.add(new Candidato(entrada, e.getValue()));
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+            }
+
+            List<ResultadoBusquedaEstudianteDTO> resultado = new ArrayList<>(mejores.size());
+            while (!mejores.isEmpty()) {
+                resultado.add(aDTO(mejores.poll()));
+            }
+            Collections.reverse(resultado);
+            return Optional.of(resultado);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    // Puntaje de cada estudiante para un término: 3 palabra exacta, entre 2 y 3 prefijo, hasta 1 por trigramas
+    private Map<Long, Double> coincidencias(String termino) {
+        Map<Long, Double> puntajes = new HashMap<>();
+        for (Map.Entry<String, Set<Long>> e : palabras.subMap(termino, true, termino + Character.MAX_VALUE, false).entrySet()) {
+            double puntaje = 2 + (double) termino.length() / e.getKey().length();
+            for (Long id : e.getValue()) {
+                puntajes.merge(id, puntaje, Math::max);
+            }
+        }
+
+        if (termino.length() >= 3) {
+            Set<String> delTermino = trigramasDe(termino);
+            Map<String, Integer> comunes = new HashMap<>();
+            for (String trigrama : delTermino) {
+                for (String palabra : trigramas.getOrDefault(trigrama, Set.of())) {
+                    comunes.merge(palabra, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> e : comunes.entrySet()) {
+                int compartidos = e.getValue();
+                double similitud = (double) compartidos / (delTermino.size() + trigramasDe(e.getKey()).size() - compartidos);
+                if (similitud >= SIMILITUD_MINIMA) {
+                    for (Long id : palabras.get(e.getKey())) {
+                        puntajes.merge(id, similitud, Math::max);
+                    }
+                }
+            }
+        }
+        return puntajes;
+    }
+
+    private boolean visiblePara(Entrada entrada, Long profesorId) {
+        GradoInfo grado = entrada.gradoId() != null ? grados.get(entrada.gradoId()) : null;
+        return grado != null && profesorId.equals(grado.profesorId());
+    }
+
+    // Llamar con el bloqueo de escritura tomado
+    private void agregar(Long id, String nombres, String apellidos, String email, String codigoProgreso, Long gradoId) {
+        Set<String> suyas = new LinkedHashSet<>();
+        suyas.addAll(dividir(nombres));
+        suyas.addAll(dividir(apellidos));
+        suyas.addAll(dividir(email));
+        suyas.addAll(dividir(codigoProgreso));
+
+        String claveOrden = normalizar(apellidos) + " " + normalizar(nombres);
+        estudiantes.put(id, new Entrada(id, nombres, apellidos, email, codigoProgreso, gradoId, List.copyOf(suyas), claveOrden));
+        for (String palabra : suyas) {
+            Set<Long> ids = palabras.get(palabra);
+            if (ids == null) {
+                ids = new HashSet<>();
+                palabras.put(palabra, ids);
+                for (String trigrama : trigramasDe(palabra)) {
+                    trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(palabra);
+                }
+            }
+            ids.add(id);
+        }
+    }
+
+    // Llamar con el bloqueo de escritura tomado
+    private void quitarSinBloqueo(Long id) {
+        Entrada anterior = estudiantes.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String palabra : anterior.palabras()) {
+            Set<Long> ids = palabras.get(palabra);
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                // Nadie más tiene la palabra: sale también de sus trigramas
+                palabras.remove(palabra);
+                for (String trigrama : trigramasDe(palabra)) {
+                    Set<String> conTrigrama = trigramas.get(trigrama);
+                    if (conTrigrama != null) {
+                        conTrigrama.remove(palabra);
+                        if (conTrigrama.isEmpty()) {
+                            trigramas.remove(trigrama);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private ResultadoBusquedaEstudianteDTO aDTO(Candidato candidato) {
+        Entrada e = candidato.entrada();
+        GradoInfo grado = e.gradoId() != null ? grados.get(e.gradoId()) : null;
+        return ResultadoBusquedaEstudianteDTO.builder()
+                .id(e.id())
+                .nombres(e.nombres())
+                .apellidos(e.apellidos())
+                .email(e.email())
+                .codigoProgreso(e.codigoProgreso())
+                .gradoId(e.gradoId())
+                .gradoNivel(grado != null ? grado.nivel() : null)
+                .gradoSeccion(grado != null ? grado.seccion() : null)
+                .puntaje(candidato.puntaje())
+                .build();
+    }
+
+    // Minúsculas y sin acentos: "Núñez" -> "nunez"
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> dividir(String texto) {
+        List<String> partes = new ArrayList<>();
+        for (String parte : SEPARADORES.split(normalizar(texto))) {
+            if (!parte.isEmpty()) {
+                partes.add(parte);
+            }
+        }
+        return partes;
+    }
+
+    // Como pg_trgm: la palabra con dos espacios delante y uno detrás, de a tres caracteres
+    static Set<String> trigramasDe(String palabra) {
+        String conBordes = "  " + palabra + " ";
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= conBordes.length(); i++) {
+            resultado.add(conBordes.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    private record Entrada(Long id, String nombres, String apellidos, String email, String codigoProgreso, Long gradoId,
+                           List<String> palabras, String claveOrden) {}
+
+    private record GradoInfo(Long profesorId, String nivel, String seccion) {}
+
+    private record Candidato(Entrada entrada, double puntaje) {}
+}
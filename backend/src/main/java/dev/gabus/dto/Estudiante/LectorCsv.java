@@ -0,0 +1,94 @@
+package dev.gabus.dto.Estudiante;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee un CSV registro por registro (RFC 4180: campos entre comillas, comillas dobladas, saltos de
+ * línea dentro de comillas, CRLF o LF). El separador es ',' o ';' (Excel en español usa ';'),
+ * el que más aparezca en la primera línea. Un BOM al principio se descarta.
+ */
+class LectorCsv {
+
+    private final BufferedReader reader;
+    private final char separador;
+
+    LectorCsv(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        saltarBom(reader);
+        this.separador = detectarSeparador(reader);
+    }
+
+    // null al final del archivo
+    List<String> siguienteRegistro() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leyoAlgo = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            leyoAlgo = true;
+            if (entreComillas) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int siguiente = reader.read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (siguiente != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n') {
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+        }
+        if (!leyoAlgo) {
+            return null;
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    // Excel guarda "CSV UTF-8" con BOM al principio; no es parte del primer campo
+    private static void saltarBom(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    private static char detectarSeparador(BufferedReader reader) throws IOException {
+        reader.mark(8192);
+        int comas = 0;
+        int puntoYComas = 0;
+        boolean entreComillas = false;
+        int leidos = 0;
+        int c;
+        while (leidos++ < 8192 && (c = reader.read()) != -1 && (entreComillas || c != '\n')) {
+            if (c == '"') {
+                entreComillas = !entreComillas;
+            } else if (!entreComillas && c == ',') {
+                comas++;
+            } else if (!entreComillas && c == ';') {
+                puntoYComas++;
+            }
+        }
+        reader.reset();
+        return puntoYComas > comas ? ';' : ',';
+    }
+}
@@ -0,0 +1,86 @@
+package dev.gabus.dto.Estudiante;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Listados de estudiantes filtrados en la base de datos: el profesor solo lee los estudiantes de
+ * sus grados (join por grado.profesor_id), con filtros opcionales de grado y nombre y paginación
+ * por clave en orden alfabético (apellidos, nombres, id), igual que la planilla.
+ */
+@Service
+@RequiredArgsConstructor
+public class ListadoEstudianteService {
+
+    private static final String SQL_BASE =
+            "SELECT e.id, e.nombres, e.apellidos, e.email, e.codigo_progreso, e.nfc_id, e.saldo_tokens, " +
+            "g.id AS grado_id, g.nivel, g.seccion " +
+            "FROM estudiante e JOIN grado g ON g.id = e.grado_id WHERE 1 = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param profesorId  null para ver todos (ADMIN)
+     * @param gradoId     opcional
+     * @param nombre      opcional; busca en nombres y apellidos, sin distinguir mayúsculas
+     * @param soloSinNfc  solo estudiantes sin tarjeta NFC asignada
+     * @param despuesDe   opcional; id del último estudiante de la página anterior
+     * @param limite      opcional; null trae todo
+     */
+    public List<EstudianteListadoDTO> listar(Long profesorId, Long gradoId, String nombre, boolean soloSinNfc,
+                                             Long despuesDe, Integer limite) {
+        StringBuilder sql = new StringBuilder(SQL_BASE);
+        List<Object> args = new ArrayList<>();
+
+        if (profesorId != null) {
+            sql.append(" AND g.profesor_id = ?");
+            args.add(profesorId);
+        }
+        if (gradoId != null) {
+            sql.append(" AND e.grado_id = ?");
+            args.add(gradoId);
+        }
+        if (soloSinNfc) {
+            sql.append(" AND e.nfc_id IS NULL");
+        }
+        if (nombre != null && !nombre.isBlank()) {
+            sql.append(" AND (e.nombres ILIKE ? OR e.apellidos ILIKE ? OR (e.nombres || ' ' || e.apellidos) ILIKE ?)");
+            String patron = "%" + escaparLike(nombre.trim()) + "%";
+            args.add(patron);
+            args.add(patron);
+            args.add(patron);
+        }
+        if (despuesDe != null) {
+            sql.append(" AND (e.apellidos, e.nombres, e.id) > (SELECT ult.apellidos, ult.nombres, ult.id FROM estudiante ult WHERE ult.id = ?)");
+            args.add(despuesDe);
+        }
+        sql.append(" ORDER BY e.apellidos, e.nombres, e.id");
+        if (limite != null) {
+            sql.append(" LIMIT ?");
+            args.add(limite);
+        }
+
+        return jdbcTemplate.query(sql.toString(), (rs, fila) -> EstudianteListadoDTO.builder()
+                .id(rs.getLong("id"))
+                .nombres(rs.getString("nombres"))
+                .apellidos(rs.getString("apellidos"))
+                .email(rs.getString("email"))
+                .codigoProgreso(rs.getString("codigo_progreso"))
+                .nfcId(rs.getString("nfc_id"))
+                .saldoTokens(rs.getInt("saldo_tokens"))
+                .gradoId(rs.getLong("grado_id"))
+                .gradoNivel(rs.getString("nivel"))
+                .gradoSeccion(rs.getString("seccion"))
+                .build(), args.toArray());
+    }
+
+    // % y _ del texto buscado se toman literales
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
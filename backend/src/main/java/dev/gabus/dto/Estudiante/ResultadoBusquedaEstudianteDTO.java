@@ -0,0 +1,23 @@
+package dev.gabus.dto.Estudiante;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Coincidencia de GET /api/estudiantes/buscar, de mayor a menor puntaje
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoBusquedaEstudianteDTO {
+    private Long id;
+    private String nombres;
+    private String apellidos;
+    private String email;
+    private String codigoProgreso;
+    private Long gradoId;
+    private String gradoNivel;
+    private String gradoSeccion;
+    private double puntaje;
+}
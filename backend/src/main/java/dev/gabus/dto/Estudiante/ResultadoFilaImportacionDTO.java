@@ -0,0 +1,19 @@
+package dev.gabus.dto.Estudiante;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resultado de una fila del archivo importado: id y código asignados, o el motivo por el que no se importó
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoFilaImportacionDTO {
+    private int fila;
+    private boolean importado;
+    private Long id;
+    private String codigoProgreso;
+    private String mensaje;
+}
@@ -0,0 +1,116 @@
+package dev.gabus.dto.Exportacion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exportación completa del libro de notas en NDJSON (un objeto JSON por línea).
+ * Las filas se leen con un cursor de solo avance y se escriben a medida que llegan,
+ * sin armar entidades ni listas en memoria: exportar millones de notas usa memoria constante.
+ */
+@Service
+public class ExportacionService {
+
+    private static final String SQL_CALIFICACIONES =
+            "SELECT id, estudiante_id, actividad_id, nota, observacion FROM calificacion ORDER BY id";
+
+    private static final String SQL_ACTIVIDADES =
+            "SELECT id, nombre, descripcion, ponderacion, fecha_actividad, materia_id, trimestre_id, parent_id, promedia " +
+            "FROM actividad ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Filas que trae cada viaje a la base de datos
+    @Value("${exportacion.fetch-size:1000}")
+    private int fetchSize;
+
+    public ExportacionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        // PostgreSQL solo usa un cursor (fetch size) dentro de una transacción
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void exportarCalificaciones(OutputStream out) throws IOException {
+        exportar(SQL_CALIFICACIONES, out, (rs, gen) -> {
+            gen.writeNumberField("id", rs.getLong("id"));
+            gen.writeNumberField("estudianteId", rs.getLong("estudiante_id"));
+            gen.writeNumberField("actividadId", rs.getLong("actividad_id"));
+            gen.writeFieldName("nota");
+            gen.writeNumber(rs.getBigDecimal("nota"));
+            gen.writeStringField("observacion", rs.getString("observacion"));
+        });
+    }
+
+    public void exportarActividades(OutputStream out) throws IOException {
+        exportar(SQL_ACTIVIDADES, out, (rs, gen) -> {
+            gen.writeNumberField("id", rs.getLong("id"));
+            gen.writeStringField("nombre", rs.getString("nombre"));
+            gen.writeStringField("descripcion", rs.getString("descripcion"));
+            gen.writeFieldName("ponderacion");
+            gen.writeNumber(rs.getBigDecimal("ponderacion"));
+            LocalDate fecha = rs.getObject("fecha_actividad", LocalDate.class);
+            gen.writeStringField("fechaActividad", fecha != null ? fecha.toString() : null);
+            gen.writeNumberField("materiaId", rs.getLong("materia_id"));
+            gen.writeNumberField("trimestreId", rs.getLong("trimestre_id"));
+            long parentId = rs.getLong("parent_id");
+            gen.writeFieldName("parentId");
+            if (rs.wasNull()) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(parentId);
+            }
+            gen.writeBooleanField("promedia", rs.getBoolean("promedia"));
+        });
+    }
+
+    private void exportar(String sql, OutputStream out, EscritorFila escritor) throws IOException {
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+        gen.setRootValueSeparator(null); // El separador entre objetos es el salto de línea que escribimos nosotros
+
+        RowCallbackHandler porFila = rs -> {
+            try {
+                gen.writeStartObject();
+                escritor.escribir(rs, gen);
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, porFila));
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Normalmente, el cliente cerró la conexión
+        }
+        gen.flush();
+    }
+
+    @FunctionalInterface
+    private interface EscritorFila {
+        void escribir(ResultSet rs, JsonGenerator gen) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package dev.gabus.dto.Progreso;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Límite de solicitudes por IP con un balde de fichas: cada IP tiene hasta 'capacidad' fichas,
+ * cada solicitud gasta una y se recargan 'recarga-por-minuto' por minuto. Permite ráfagas cortas
+ * (recargar la página varias veces) pero no recorrer códigos de progreso al azar.
+ *
+ * Se guardan a lo sumo 'max-ips' baldes; al pasarse sale el de la IP que lleva más tiempo sin pedir
+ * nada (LRU). Así, llenar la tabla con IPs nuevas no borra el límite de las que están activas.
+ */
+@Component
+public class LimitadorPorIp {
+
+    private final int capacidad;
+    private final int recargaPorMinuto;
+    private final int maxIps;
+
+    // Orden de acceso: el primero es la IP que lleva más tiempo inactiva. Todo acceso va bajo 'this'
+    private final LinkedHashMap<String, Balde> baldes;
+
+    public LimitadorPorIp(
+            @Value("${progreso.limite.capacidad:30}") int capacidad,
+            @Value("${progreso.limite.recarga-por-minuto:60}") int recargaPorMinuto,
+            @Value("${progreso.limite.max-ips:10000}") int maxIps) {
+        this.capacidad = capacidad;
+        this.recargaPorMinuto = recargaPorMinuto;
+        this.maxIps = maxIps;
+        this.baldes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Balde> eldest) {
+                return size() > LimitadorPorIp.this.maxIps;
+            }
+        };
+    }
+
+    // true si la solicitud puede seguir; false si la IP gastó sus fichas
+    public boolean intentar(String ip) {
+        return intentar(ip, System.nanoTime());
+    }
+
+    synchronized boolean intentar(String ip, long ahora) {
+        Balde balde = baldes.get(ip);
+        if (balde == null) {
+            balde = new Balde(capacidad, ahora);
+            baldes.put(ip, balde);
+        }
+        balde.recargar(ahora, capacidad, recargaPorMinuto);
+        if (balde.fichas >= 1) {
+            balde.fichas -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    // Segundos hasta la próxima ficha (cabecera Retry-After)
+    public long segundosParaReintentar() {
+        return Math.max(1, (long) Math.ceil(60.0 / Math.max(1, recargaPorMinuto)));
+    }
+
+    synchronized int cantidadIps() {
+        return baldes.size();
+    }
+
+    private static class Balde {
+        double fichas;
+        long ultimaRecarga;
+
+        Balde(int fichas, long ahora) {
+            this.fichas = fichas;
+            this.ultimaRecarga = ahora;
+        }
+
+        void recargar(long ahora, int capacidad, int recargaPorMinuto) {
+            double minutos = (ahora - ultimaRecarga) / 60_000_000_000.0;
+            fichas = Math.min(capacidad, fichas + minutos * recargaPorMinuto);
+            ultimaRecarga = ahora;
+        }
+    }
+}
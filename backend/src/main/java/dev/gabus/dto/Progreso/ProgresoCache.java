@@ -0,0 +1,213 @@
+package dev.gabus.dto.Progreso;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.gabus.dto.Asistencia.EstadoAsistencia;
+import dev.gabus.dto.Promedio.PromedioMateriaDTO;
+import dev.gabus.dto.Promedio.PromedioTrimestreRepository;
+import dev.gabus.dto.Reporte.ReporteService;
+
+/**
+ * Fotos de la página pública de progreso (GET /api/estudiantes/progreso/{codigo}), por código.
+ *
+ * Cada foto se arma una vez (estudiante y grado, promedios por materia y trimestre, resumen de
+ * asistencia) y se guarda ya convertida a JSON junto con su ETag, así una recarga de la página
+ * no toca la base de datos ni vuelve a serializar. Cuando cambian notas, asistencia, tokens o los
+ * datos del estudiante, quien hace el cambio llama a invalidar(); además cada foto vence a los
+ * progreso.cache.ttl-segundos por si algún cambio no avisa. Las menos usadas salen primero (LRU).
+ */
+@Component
+public class ProgresoCache {
+
+    private static final String SQL_ESTUDIANTE =
+            "SELECT e.id, e.nombres, e.apellidos, e.codigo_progreso, e.saldo_tokens, g.id AS grado_id, g.nivel, g.seccion " +
+            "FROM estudiante e JOIN grado g ON g.id = e.grado_id WHERE e.codigo_progreso = ?";
+
+    private static final String SQL_ASISTENCIA =
+            "SELECT estado, COUNT(*) FROM asistencia WHERE estudiante_id = ? GROUP BY estado";
+
+    @Value("${progreso.cache.max-entradas:5000}")
+    private int maxEntradas;
+
+    @Value("${progreso.cache.ttl-segundos:600}")
+    private long ttlSegundos;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PromedioTrimestreRepository promedioTrimestreRepository;
+    private final ObjectMapper objectMapper;
+
+    // Orden de acceso (LRU): el primero es el menos usado recientemente
+    private final LinkedHashMap<String, Foto> porCodigo = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, String> codigoPorEstudiante = new HashMap<>();
+    // Sube con cada invalidación: una foto armada antes de una invalidación no se guarda
+    private long generacion = 0;
+
+    public ProgresoCache(JdbcTemplate jdbcTemplate, PromedioTrimestreRepository promedioTrimestreRepository, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.promedioTrimestreRepository = promedioTrimestreRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Vacío si no hay estudiante con ese código
+    public Optional<Foto> obtener(String codigo) {
+        long generacionAlEmpezar;
+        synchronized (this) {
+            Foto foto = porCodigo.get(codigo);
+            if (foto != null && foto.venceEn() > System.currentTimeMillis()) {
+                return Optional.of(foto);
+            }
+            generacionAlEmpezar = generacion;
+        }
+
+        // Se arma fuera del bloqueo: una foto lenta no frena las recargas de los demás
+        Optional<Foto> nueva = armar(codigo);
+        nueva.ifPresent(foto -> guardar(foto, generacionAlEmpezar));
+        return nueva;
+    }
+
+    public synchronized void invalidar(Long estudianteId) {
+        generacion++;
+        String codigo = codigoPorEstudiante.remove(estudianteId);
+        if (codigo != null) {
+            porCodigo.remove(codigo);
+        }
+    }
+
+    public synchronized void invalidar(Collection<Long> estudianteIds) {
+        generacion++;
+        for (Long estudianteId : estudianteIds) {
+            String codigo = codigoPorEstudiante.remove(estudianteId);
+            if (codigo != null) {
+                porCodigo.remove(codigo);
+            }
+        }
+    }
+
+    // Cambió algo compartido por muchas fotos (nombre de una materia o de un grado)
+    public synchronized void invalidarTodo() {
+        generacion++;
+        porCodigo.clear();
+        codigoPorEstudiante.clear();
+    }
+
+    /**
+     * Invalida cuando se confirme la transacción actual (o ya, si no hay una): invalidar antes
+     * dejaría que otra solicitud vuelva a guardar los datos viejos mientras el cambio no se confirmó.
+     * Con estudianteIds = null se invalida todo.
+     */
+    public void invalidarAlConfirmar(Collection<Long> estudianteIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidarSegun(estudianteIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidarSegun(estudianteIds);
+            }
+        });
+    }
+
+    private void invalidarSegun(Collection<Long> estudianteIds) {
+        if (estudianteIds == null) {
+            invalidarTodo();
+        } else {
+            invalidar(estudianteIds);
+        }
+    }
+
+    private synchronized void guardar(Foto foto, long generacionAlEmpezar) {
+        if (generacion != generacionAlEmpezar) {
+            return;
+        }
+        // Si el estudiante cambió de código, la foto vieja sale
+        String codigoAnterior = codigoPorEstudiante.put(foto.estudianteId(), foto.codigo());
+        if (codigoAnterior != null && !codigoAnterior.equals(foto.codigo())) {
+            porCodigo.remove(codigoAnterior);
+        }
+        porCodigo.put(foto.codigo(), foto);
+
+        Iterator<Map.Entry<String, Foto>> it = porCodigo.entrySet().iterator();
+        while (porCodigo.size() > maxEntradas && it.hasNext()) {
+            Foto vieja = it.next().getValue();
+            it.remove();
+            codigoPorEstudiante.remove(vieja.estudianteId(), vieja.codigo());
+        }
+    }
+
+    private Optional<Foto> armar(String codigo) {
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(SQL_ESTUDIANTE, codigo);
+        if (filas.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Object> fila = filas.get(0);
+        Long estudianteId = ((Number) fila.get("id")).longValue();
+
+        List<PromedioMateriaDTO> promedios = promedioTrimestreRepository.findSumasByEstudianteId(estudianteId).stream()
+                .map(suma -> new PromedioMateriaDTO(suma.getMateria(), suma.getTrimestreId(),
+                        ReporteService.calcularPromedioTrimestre(suma.getSumaPonderada(), suma.getSumaPonderaciones())))
+                .collect(Collectors.toList());
+
+        Map<EstadoAsistencia, Long> asistencia = new EnumMap<>(EstadoAsistencia.class);
+        for (EstadoAsistencia estado : EstadoAsistencia.values()) {
+            asistencia.put(estado, 0L);
+        }
+        jdbcTemplate.query(SQL_ASISTENCIA, rs -> {
+            asistencia.put(EstadoAsistencia.valueOf(rs.getString(1)), rs.getLong(2));
+        }, estudianteId);
+
+        ProgresoSnapshotDTO datos = ProgresoSnapshotDTO.builder()
+                .nombres((String) fila.get("nombres"))
+                .apellidos((String) fila.get("apellidos"))
+                .codigoProgreso((String) fila.get("codigo_progreso"))
+                .saldoTokens(((Number) fila.get("saldo_tokens")).intValue())
+                .grado(new ProgresoSnapshotDTO.GradoResumen(((Number) fila.get("grado_id")).longValue(),
+                        (String) fila.get("nivel"), (String) fila.get("seccion")))
+                .promedios(promedios)
+                .asistencia(asistencia)
+                .build();
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(datos);
+            byte[] jsonPromedios = objectMapper.writeValueAsBytes(promedios);
+            return Optional.of(new Foto(estudianteId, datos.getCodigoProgreso(), json, etag(json), jsonPromedios, etag(jsonPromedios),
+                    System.currentTimeMillis() + ttlSegundos * 1000));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el progreso del estudiante " + estudianteId, e);
+        }
+    }
+
+    // La huella del contenido: si los datos no cambiaron, el ETag tampoco (aunque la foto se haya vuelto a armar)
+    private static String etag(byte[] contenido) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(contenido);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    // Respuesta completa y solo los promedios (GET .../promedios), ya en JSON y con su ETag
+    public record Foto(Long estudianteId, String codigo, byte[] json, String etag,
+                       byte[] jsonPromedios, String etagPromedios, long venceEn) {}
+}
@@ -0,0 +1,37 @@
+package dev.gabus.dto.Progreso;
+
+import java.util.List;
+import java.util.Map;
+
+import dev.gabus.dto.Asistencia.EstadoAsistencia;
+import dev.gabus.dto.Promedio.PromedioMateriaDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Todo lo que muestra la página pública de progreso, armado de una vez y guardado en ProgresoCache.
+// Sin email ni NFC: la página se abre solo con el código.
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgresoSnapshotDTO {
+    private String nombres;
+    private String apellidos;
+    private String codigoProgreso;
+    private Integer saldoTokens;
+    private GradoResumen grado;
+    private List<PromedioMateriaDTO> promedios;
+    // Días registrados por estado (PRESENTE, TARDE, AUSENTE, EXCUSADO)
+    private Map<EstadoAsistencia, Long> asistencia;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class GradoResumen {
+        private Long id;
+        private String nivel;
+        private String seccion;
+    }
+}
@@ -0,0 +1,17 @@
+package dev.gabus.dto.Promedio;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Promedio de un estudiante en una materia y trimestre (página de progreso)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PromedioMateriaDTO {
+    private String materia;
+    private Long trimestreId;
+    private BigDecimal promedio;
+}
@@ -0,0 +1,58 @@
+package dev.gabus.dto.Promedio;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Modelo de lectura: nota de un estudiante en una materia y trimestre, calculada sobre el árbol de actividades.
+// Se mantiene al guardar notas y al cambiar o borrar actividades (ver PromedioTrimestreService),
+// así los boletines y el progreso leen una fila por materia en lugar de recorrer todas las notas.
+// Promedio del trimestre = sumaPonderada / sumaPonderaciones.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "promedio_trimestre", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_promedio_trimestre_celda", columnNames = {"estudiante_id", "materia_id", "trimestre_id"})
+}, indexes = {
+    @Index(name = "idx_promedio_trimestre_materia", columnList = "materia_id, trimestre_id")
+})
+public class PromedioTrimestre {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "estudiante_id", nullable = false)
+    private Long estudianteId;
+
+    @Column(name = "materia_id", nullable = false)
+    private Long materiaId;
+
+    @Column(name = "trimestre_id", nullable = false)
+    private Long trimestreId;
+
+    // Promedio del trimestre * sumaPonderaciones
+    @Column(name = "suma_ponderada", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sumaPonderada;
+
+    // Suma de ponderaciones de las actividades principales que tienen valor
+    @Column(name = "suma_ponderaciones", nullable = false, precision = 12, scale = 2)
+    private BigDecimal sumaPonderaciones;
+
+    // Cantidad de notas de la celda; al llegar a 0 la fila se borra
+    @Column(nullable = false)
+    private int cantidad;
+}
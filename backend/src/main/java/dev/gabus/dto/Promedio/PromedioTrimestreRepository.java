@@ -0,0 +1,27 @@
+package dev.gabus.dto.Promedio;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import dev.gabus.dto.Calificacion.SumaTrimestreView;
+
+public interface PromedioTrimestreRepository extends JpaRepository<PromedioTrimestre, Long> {
+
+    // Sumas por estudiante, materia y trimestre de un año escolar (una fila por materia y trimestre)
+    @Query("SELECT p.estudianteId AS estudianteId, p.materiaId AS materiaId, m.nombre AS materia, p.trimestreId AS trimestreId, " +
+           "p.sumaPonderada AS sumaPonderada, p.sumaPonderaciones AS sumaPonderaciones " +
+           "FROM PromedioTrimestre p JOIN Materia m ON m.id = p.materiaId JOIN Trimestre t ON t.id = p.trimestreId " +
+           "WHERE p.estudianteId IN :estudianteIds AND t.anioEscolar = :anioEscolar")
+    List<SumaTrimestreView> sumarPorMateriaYTrimestre(@Param("estudianteIds") Collection<Long> estudianteIds, @Param("anioEscolar") int anioEscolar);
+
+    // Todas las sumas de un estudiante (página de progreso)
+    @Query("SELECT p.estudianteId AS estudianteId, p.materiaId AS materiaId, m.nombre AS materia, p.trimestreId AS trimestreId, " +
+           "p.sumaPonderada AS sumaPonderada, p.sumaPonderaciones AS sumaPonderaciones " +
+           "FROM PromedioTrimestre p JOIN Materia m ON m.id = p.materiaId " +
+           "WHERE p.estudianteId = :estudianteId ORDER BY m.nombre, p.trimestreId")
+    List<SumaTrimestreView> findSumasByEstudianteId(@Param("estudianteId") Long estudianteId);
+}
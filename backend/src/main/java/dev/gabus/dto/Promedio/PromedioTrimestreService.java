@@ -0,0 +1,173 @@
+package dev.gabus.dto.Promedio;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import dev.gabus.dto.Actividad.ActividadRepository;
+import dev.gabus.dto.Calificacion.CalculadoraNotas;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.ArbolActividades;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.Evaluador;
+import dev.gabus.dto.Calificacion.CalificacionRepository;
+import dev.gabus.dto.Calificacion.NotaCeldaView;
+import dev.gabus.dto.Progreso.ProgresoCache;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mantiene la tabla promedio_trimestre.
+ * Cuando cambia una nota o una actividad se recalculan, con CalculadoraNotas, solo las celdas
+ * (estudiante, materia, trimestre) afectadas, dentro de la misma transacción que el cambio.
+ * Los métodos de actualización exigen una transacción abierta por el llamador.
+ */
+@Service
+@RequiredArgsConstructor
+public class PromedioTrimestreService {
+
+    private static final String SQL_GUARDAR =
+            "INSERT INTO promedio_trimestre (estudiante_id, materia_id, trimestre_id, suma_ponderada, suma_ponderaciones, cantidad) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (estudiante_id, materia_id, trimestre_id) DO UPDATE SET " +
+            "suma_ponderada = EXCLUDED.suma_ponderada, " +
+            "suma_ponderaciones = EXCLUDED.suma_ponderaciones, " +
+            "cantidad = EXCLUDED.cantidad";
+
+    private static final int[] TIPOS_GUARDAR = { Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.NUMERIC, Types.NUMERIC, Types.INTEGER };
+
+    private static final String SQL_BORRAR =
+            "DELETE FROM promedio_trimestre WHERE estudiante_id = ? AND materia_id = ? AND trimestre_id = ?";
+
+    private static final int[] TIPOS_BORRAR = { Types.BIGINT, Types.BIGINT, Types.BIGINT };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActividadRepository actividadRepository;
+    private final CalificacionRepository calificacionRepository;
+    private final CalculadoraNotas calculadoraNotas;
+    private final ProgresoCache progresoCache;
+
+    // Cambiaron notas de estos estudiantes en la actividad
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recalcular(Long actividadId, Collection<Long> estudianteIds) {
+        List<Long[]> celda = jdbcTemplate.query("SELECT materia_id, trimestre_id FROM actividad WHERE id = ?",
+                (rs, n) -> new Long[] { rs.getLong(1), rs.getLong(2) }, actividadId);
+        if (!celda.isEmpty()) {
+            recalcularCeldas(celda.get(0)[0], celda.get(0)[1], estudianteIds);
+        }
+    }
+
+    /**
+     * Recalcula las celdas de una materia y trimestre. Con estudianteIds = null se recalculan todos los
+     * estudiantes con notas o con fila en la tabla (cambió el árbol de actividades o una ponderación).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recalcularCeldas(Long materiaId, Long trimestreId, Collection<Long> estudianteIds) {
+        // Dos recálculos de la misma materia y trimestre no se cruzan: el segundo espera y lee lo que confirmó el primero.
+        // La clave es un hash de 64 bits de "promedio:materia:trimestre" (sin truncar ids ni chocar con otros bloqueos)
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtextextended('promedio:' || ? || ':' || ?, 0))",
+                (RowCallbackHandler) rs -> {}, materiaId, trimestreId);
+        progresoCache.invalidarAlConfirmar(calcularYGuardar(materiaId, trimestreId, estudianteIds));
+    }
+
+    // Devuelve los estudiantes recalculados
+    private Set<Long> calcularYGuardar(Long materiaId, Long trimestreId, Collection<Long> estudianteIds) {
+        ArbolActividades arbol = calculadoraNotas.compilar(actividadRepository.findNodosByMateriaIdAndTrimestreId(materiaId, trimestreId));
+        List<NotaCeldaView> celdas = estudianteIds == null
+                ? calificacionRepository.findCeldasByMateriaIdAndTrimestreId(materiaId, trimestreId)
+                : calificacionRepository.findCeldasByMateriaIdAndTrimestreIdAndEstudianteIds(materiaId, trimestreId, estudianteIds);
+
+        Set<Long> estudiantes = new LinkedHashSet<>();
+        if (estudianteIds == null) {
+            estudiantes.addAll(jdbcTemplate.queryForList(
+                    "SELECT estudiante_id FROM promedio_trimestre WHERE materia_id = ? AND trimestre_id = ?", Long.class, materiaId, trimestreId));
+        } else {
+            estudiantes.addAll(estudianteIds);
+        }
+        for (NotaCeldaView celda : celdas) {
+            estudiantes.add(celda.getEstudianteId());
+        }
+        if (estudiantes.isEmpty()) {
+            return estudiantes;
+        }
+
+        // Una fila de notas (en centésimas) por estudiante
+        int nCol = arbol.tamano();
+        Map<Long, Integer> filaDe = new LinkedHashMap<>();
+        for (Long estudianteId : estudiantes) {
+            filaDe.put(estudianteId, filaDe.size());
+        }
+        long[] notas = new long[filaDe.size() * nCol];
+        Arrays.fill(notas, CalculadoraNotas.SIN_NOTA);
+        for (NotaCeldaView celda : celdas) {
+            int j = arbol.columnaDe(celda.getActividadId());
+            if (j >= 0) {
+                notas[filaDe.get(celda.getEstudianteId()) * nCol + j] = CalculadoraNotas.aCentesimas(celda.getNota());
+            }
+        }
+
+        List<Object[]> guardar = new ArrayList<>();
+        List<Object[]> borrar = new ArrayList<>();
+        Evaluador evaluador = arbol.nuevoEvaluador();
+        for (Map.Entry<Long, Integer> fila : filaDe.entrySet()) {
+            long total = evaluador.evaluar(notas, fila.getValue() * nCol);
+            if (evaluador.getCantidadNotas() == 0) {
+                borrar.add(new Object[] { fila.getKey(), materiaId, trimestreId });
+                continue;
+            }
+            // Se guarda total * peso y peso, así sumaPonderada / sumaPonderaciones da exactamente el total calculado
+            long peso = total == CalculadoraNotas.SIN_NOTA ? 0 : evaluador.getPesoPrincipales();
+            long sumaPonderada = total == CalculadoraNotas.SIN_NOTA ? 0 : total * peso;
+            guardar.add(new Object[] { fila.getKey(), materiaId, trimestreId,
+                    BigDecimal.valueOf(sumaPonderada, 4), BigDecimal.valueOf(peso, 2), evaluador.getCantidadNotas() });
+        }
+
+        if (!guardar.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_GUARDAR, guardar, TIPOS_GUARDAR);
+        }
+        if (!borrar.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_BORRAR, borrar, TIPOS_BORRAR);
+        }
+        return estudiantes;
+    }
+
+    // Recalcula toda la tabla desde las notas. Devuelve la cantidad de filas generadas.
+    @Transactional
+    public int reconstruir() {
+        // Bloquea las actualizaciones incrementales mientras se reconstruye; esperan y se aplican encima.
+        // Con la tabla bloqueada no hace falta el bloqueo por materia y trimestre.
+        jdbcTemplate.execute("LOCK TABLE promedio_trimestre IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM promedio_trimestre");
+
+        List<Long[]> celdas = jdbcTemplate.query("SELECT DISTINCT materia_id, trimestre_id FROM actividad",
+                (rs, n) -> new Long[] { rs.getLong(1), rs.getLong(2) });
+        for (Long[] celda : celdas) {
+            calcularYGuardar(celda[0], celda[1], null);
+        }
+        progresoCache.invalidarAlConfirmar(null);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM promedio_trimestre", Integer.class);
+    }
+
+    // Primera vez (tabla recién creada con notas ya existentes): se llena desde cero
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void llenarSiEstaVacia() {
+        Boolean vacia = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM promedio_trimestre)", Boolean.class);
+        Boolean hayNotas = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM calificacion)", Boolean.class);
+        if (Boolean.TRUE.equals(vacia) && Boolean.TRUE.equals(hayNotas)) {
+            System.out.println("Promedios por trimestre generados: " + reconstruir() + " filas");
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package dev.gabus.dto.Reporte;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Caché de boletines ya renderizados.
+ * La clave es el estudiante más una huella (hash) de los datos con que se llenó el boletín,
+ * así un boletín en caché nunca queda desactualizado. Los más recientes se guardan en memoria
+ * y, al salir de ella, se pasan a disco; ambos niveles tienen un tamaño máximo.
+ */
+@Component
+public class BoletinCache {
+
+    @Value("${reportes.cache.memoria-max-mb:32}")
+    private long memoriaMaxMb;
+
+    @Value("${reportes.cache.disco-max-mb:256}")
+    private long discoMaxMb;
+
+    // Un boletín más grande que esto no se guarda en caché
+    @Value("${reportes.cache.entrada-max-kb:1024}")
+    private long entradaMaxKb;
+
+    @Value("${reportes.cache.directorio:${java.io.tmpdir}/gabus-boletines}")
+    private String directorio;
+
+    // Orden de acceso (LRU): el primero es el menos usado recientemente
+    private final LinkedHashMap<Clave, byte[]> memoria = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Clave, ArchivoEnDisco> disco = new LinkedHashMap<>(16, 0.75f, true);
+    // Huella en caché (memoria o disco) de cada estudiante: guardar() deja a lo sumo una por estudiante
+    private final Map<Long, String> huellaPorEstudiante = new HashMap<>();
+    private long bytesMemoria = 0;
+    private long bytesDisco = 0;
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        Path dir = Paths.get(directorio);
+        Files.createDirectories(dir);
+        // Los archivos de una ejecución anterior no están indexados: se descartan
+        try (Stream<Path> archivos = Files.list(dir)) {
+            archivos.forEach(this::borrarSilencioso);
+        }
+    }
+
+    public long tamanoMaximoEntrada() {
+        return entradaMaxKb * 1024;
+    }
+
+    public synchronized Optional<byte[]> obtener(Long estudianteId, String huella) {
+        Clave clave = new Clave(estudianteId, huella);
+
+        byte[] pdf = memoria.get(clave);
+        if (pdf != null) {
+            return Optional.of(pdf);
+        }
+
+        // Si está en disco se vuelve a subir a memoria
+        ArchivoEnDisco archivo = disco.remove(clave);
+        if (archivo != null) {
+            bytesDisco -= archivo.bytes();
+            try {
+                pdf = Files.readAllBytes(archivo.ruta());
+            } catch (IOException e) {
+                huellaPorEstudiante.remove(estudianteId, huella);
+                return Optional.empty();
+            } finally {
+                borrarSilencioso(archivo.ruta());
+            }
+            guardarEnMemoria(clave, pdf);
+            return Optional.of(pdf);
+        }
+        return Optional.empty();
+    }
+
+    public synchronized void guardar(Long estudianteId, String huella, byte[] pdf) {
+        // Las versiones anteriores del boletín de este estudiante ya no sirven
+        invalidar(estudianteId);
+        huellaPorEstudiante.put(estudianteId, huella);
+        guardarEnMemoria(new Clave(estudianteId, huella), pdf);
+    }
+
+    // Descarta el boletín en caché del estudiante (memoria o disco) sin recorrer el resto de la caché
+    public synchronized void invalidar(Long estudianteId) {
+        String huella = huellaPorEstudiante.remove(estudianteId);
+        if (huella == null) {
+            return;
+        }
+        Clave clave = new Clave(estudianteId, huella);
+        byte[] pdf = memoria.remove(clave);
+        if (pdf != null) {
+            bytesMemoria -= pdf.length;
+        }
+        ArchivoEnDisco archivo = disco.remove(clave);
+        if (archivo != null) {
+            bytesDisco -= archivo.bytes();
+            borrarSilencioso(archivo.ruta());
+        }
+    }
+
+    public synchronized void invalidar(Collection<Long> estudianteIds) {
+        estudianteIds.forEach(this::invalidar);
+    }
+
+    private void guardarEnMemoria(Clave clave, byte[] pdf) {
+        memoria.put(clave, pdf);
+        bytesMemoria += pdf.length;
+
+        // Pasar a disco los menos usados hasta volver al límite de memoria
+        long limite = memoriaMaxMb * 1024 * 1024;
+        Iterator<Map.Entry<Clave, byte[]>> it = memoria.entrySet().iterator();
+        while (bytesMemoria > limite && it.hasNext()) {
+            Map.Entry<Clave, byte[]> masAntiguo = it.next();
+            it.remove();
+            bytesMemoria -= masAntiguo.getValue().length;
+            guardarEnDisco(masAntiguo.getKey(), masAntiguo.getValue());
+        }
+    }
+
+    private void guardarEnDisco(Clave clave, byte[] pdf) {
+        long limite = discoMaxMb * 1024 * 1024;
+        if (pdf.length > limite) {
+            olvidar(clave);
+            return;
+        }
+        Path ruta = Paths.get(directorio, clave.estudianteId() + "-" + clave.huella() + ".pdf");
+        try {
+            Files.write(ruta, pdf);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el boletín en la caché de disco: " + e.getMessage());
+            olvidar(clave);
+            return;
+        }
+        disco.put(clave, new ArchivoEnDisco(ruta, pdf.length));
+        bytesDisco += pdf.length;
+
+        // Borrar del disco los menos usados hasta volver al límite
+        Iterator<Map.Entry<Clave, ArchivoEnDisco>> it = disco.entrySet().iterator();
+        while (bytesDisco > limite && it.hasNext()) {
+            Map.Entry<Clave, ArchivoEnDisco> masAntiguo = it.next();
+            it.remove();
+            bytesDisco -= masAntiguo.getValue().bytes();
+            borrarSilencioso(masAntiguo.getValue().ruta());
+            olvidar(masAntiguo.getKey());
+        }
+    }
+
+    // La entrada salió de los dos niveles
+    private void olvidar(Clave clave) {
+        huellaPorEstudiante.remove(clave.estudianteId(), clave.huella());
+    }
+
+    private void borrarSilencioso(Path ruta) {
+        try {
+            Files.deleteIfExists(ruta);
+        } catch (IOException e) {
+            System.err.println("No se pudo borrar el archivo de la caché de boletines: " + e.getMessage());
+        }
+    }
+
+    private record Clave(Long estudianteId, String huella) {}
+
+    private record ArchivoEnDisco(Path ruta, long bytes) {}
+}
@@ -0,0 +1,8 @@
+package dev.gabus.dto.Reporte;
+
+// Se lanza cuando la cola de reportes en segundo plano está llena (el controlador responde 429)
+public class ColaReportesLlenaException extends RuntimeException {
+    public ColaReportesLlenaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package dev.gabus.dto.Reporte;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+// Escribe en el destino y, mientras no supere el límite, guarda además una copia en memoria
+// (se usa para llenar la caché de boletines sin dejar de transmitir el PDF directamente al cliente)
+class CopiaLimitadaOutputStream extends FilterOutputStream {
+
+    private final long limite;
+    private ByteArrayOutputStream copia = new ByteArrayOutputStream();
+
+    CopiaLimitadaOutputStream(OutputStream destino, long limite) {
+        super(destino);
+        this.limite = limite;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if (hayEspacio(1)) {
+            copia.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        copiar(b, off, len);
+    }
+
+    // La copia completa, o vacío si se pasó del límite
+    Optional<byte[]> copia() {
+        return copia == null ? Optional.empty() : Optional.of(copia.toByteArray());
+    }
+
+    private void copiar(byte[] b, int off, int len) {
+        if (hayEspacio(len)) {
+            copia.write(b, off, len);
+        }
+    }
+
+    private boolean hayEspacio(int len) {
+        if (copia != null && copia.size() + len > limite) {
+            copia = null; // Demasiado grande para la caché: se deja de copiar
+        }
+        return copia != null;
+    }
+}
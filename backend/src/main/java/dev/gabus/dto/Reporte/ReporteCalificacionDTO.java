@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -14,6 +15,7 @@ public class ReporteCalificacionDTO {
     private BigDecimal notaT2;    // Ej: 10
     private BigDecimal notaT3;    // Ej: 9
     private BigDecimal totalPuntos; // Ej: 28 (Suma de T1+T2+T3)
-    private BigDecimal promedioFinal; // Ej: 9 (Total / 3)
-    
+    private BigDecimal promedioFinal; // Ej: 9 (Total / número de trimestres)
+    private List<BigDecimal> notasTrimestres; // Todas las notas del año, en orden (T1, T2, T3, ...)
+
 }
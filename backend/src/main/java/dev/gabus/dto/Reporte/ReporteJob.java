@@ -0,0 +1,90 @@
+package dev.gabus.dto.Reporte;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Trabajo de generación de reportes en segundo plano.
+// Se persiste para que los trabajos encolados sobrevivan a un reinicio.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "reporte_job", indexes = {
+    @Index(name = "idx_reporte_job_estado", columnList = "estado")
+})
+public class ReporteJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoReporteJob tipo;
+
+    // estudianteId para BOLETIN, gradoId para BOLETINES_GRADO
+    @Column(name = "referencia_id", nullable = false)
+    private Long referenciaId;
+
+    // "pdf" o "zip" (solo aplica a los lotes)
+    @Column(nullable = false, length = 10)
+    private String formato;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoReporteJob estado;
+
+    @Column(name = "mensaje_error", length = 1000)
+    private String mensajeError;
+
+    // Ruta del archivo generado en disco (no se expone al cliente)
+    @JsonIgnore
+    @Column(length = 500)
+    private String archivo;
+
+    @Column(name = "solicitado_por")
+    private String solicitadoPor;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @UpdateTimestamp
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    // Momento en que se borró el archivo por vencido (null mientras siga disponible)
+    @Column(name = "fecha_expiracion")
+    private LocalDateTime fechaExpiracion;
+
+    public enum TipoReporteJob {
+        BOLETIN,          // Boletín de un estudiante
+        BOLETINES_GRADO   // Boletines de todo un grado
+    }
+
+    public enum EstadoReporteJob {
+        PENDIENTE,
+        EN_PROCESO,
+        COMPLETADO,
+        ERROR
+    }
+}
@@ -0,0 +1,29 @@
+package dev.gabus.dto.Reporte;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import dev.gabus.dto.Reporte.ReporteJob.EstadoReporteJob;
+
+@Repository
+public interface ReporteJobRepository extends JpaRepository<ReporteJob, Long> {
+
+    // Trabajos que quedaron sin terminar (p. ej. tras un reinicio), en orden de llegada
+    List<ReporteJob> findByEstadoInOrderByIdAsc(Collection<EstadoReporteJob> estados);
+
+    // Trabajos completados antes del límite cuyo archivo todavía no se borró
+    List<ReporteJob> findByEstadoAndFechaExpiracionIsNullAndFechaActualizacionBefore(EstadoReporteJob estado, LocalDateTime limite);
+
+    // Registros ya terminados (vencidos o con error) que superaron su retención
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReporteJob j WHERE j.fechaExpiracion < ?1 OR (j.estado = ?2 AND j.fechaActualizacion < ?1)")
+    int deleteTerminadosAntesDe(LocalDateTime limite, EstadoReporteJob estadoError);
+}
@@ -0,0 +1,239 @@
+package dev.gabus.dto.Reporte;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import dev.gabus.dto.Reporte.ReporteJob.EstadoReporteJob;
+import dev.gabus.dto.Reporte.ReporteJob.TipoReporteJob;
+import dev.gabus.dto.Reporte.ReporteService.BoletinPreparado;
+import dev.gabus.dto.Reporte.ReporteService.LoteBoletines;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cola de reportes en segundo plano.
+ * Los trabajos se guardan en la tabla reporte_job y los procesa un pool fijo de hilos,
+ * así la generación de PDFs no ocupa los hilos de Tomcat.
+ * Los archivos generados se borran al vencer reportes.jobs.retencion (la descarga pasa a responder 410)
+ * y los registros de la tabla, al vencer reportes.jobs.retencion-registros.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReporteJobService {
+
+    private final ReporteJobRepository reporteJobRepository;
+    private final ReporteService reporteService;
+
+    @Value("${reportes.jobs.hilos:2}")
+    private int hilos;
+
+    // Máximo de trabajos pendientes o en proceso; por encima se rechaza con 429
+    @Value("${reportes.jobs.capacidad-cola:50}")
+    private int capacidadCola;
+
+    @Value("${reportes.jobs.directorio:${java.io.tmpdir}/gabus-reportes}")
+    private String directorio;
+
+    // Cuánto se conserva el archivo de un reporte completado
+    @Value("${reportes.jobs.retencion:PT24H}")
+    private Duration retencion;
+
+    // Cuánto se conserva el registro del trabajo después de vencer su archivo (o de terminar con error)
+    @Value("${reportes.jobs.retencion-registros:P30D}")
+    private Duration retencionRegistros;
+
+    private ExecutorService workers;
+
+    // Trabajos admitidos que aún no terminan (en cola + en proceso)
+    private final AtomicInteger enCola = new AtomicInteger();
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        Files.createDirectories(Paths.get(directorio));
+        workers = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    // Al arrancar, se vuelven a encolar los trabajos que quedaron pendientes o a medias
+    @EventListener(ApplicationReadyEvent.class)
+    public void recuperarPendientes() {
+        List<ReporteJob> pendientes = reporteJobRepository.findByEstadoInOrderByIdAsc(
+                List.of(EstadoReporteJob.PENDIENTE, EstadoReporteJob.EN_PROCESO));
+
+        for (ReporteJob job : pendientes) {
+            job.setEstado(EstadoReporteJob.PENDIENTE);
+            reporteJobRepository.save(job);
+            // Ya fueron aceptados antes del reinicio: se admiten aunque superen la capacidad
+            enCola.incrementAndGet();
+            workers.submit(() -> procesar(job.getId()));
+        }
+        if (!pendientes.isEmpty()) {
+            System.out.println("Trabajos de reportes recuperados tras el reinicio: " + pendientes.size());
+        }
+    }
+
+    public ReporteJob encolar(TipoReporteJob tipo, Long referenciaId, String formato, String solicitadoPor) {
+        // Contrapresión: si la cola está llena no se acepta el trabajo
+        if (enCola.incrementAndGet() > capacidadCola) {
+            enCola.decrementAndGet();
+            throw new ColaReportesLlenaException("La cola de reportes está llena. Intente de nuevo en unos momentos.");
+        }
+
+        ReporteJob job;
+        try {
+            job = reporteJobRepository.save(ReporteJob.builder()
+                    .tipo(tipo)
+                    .referenciaId(referenciaId)
+                    .formato(formato)
+                    .estado(EstadoReporteJob.PENDIENTE)
+                    .solicitadoPor(solicitadoPor)
+                    .build());
+        } catch (RuntimeException e) {
+            enCola.decrementAndGet();
+            throw e;
+        }
+
+        Long jobId = job.getId();
+        workers.submit(() -> procesar(jobId));
+        return job;
+    }
+
+    public Optional<ReporteJob> obtener(Long id) {
+        return reporteJobRepository.findById(id);
+    }
+
+    public Path archivoDe(ReporteJob job) {
+        return Paths.get(job.getArchivo());
+    }
+
+    private void procesar(Long jobId) {
+        try {
+            ReporteJob job = reporteJobRepository.findById(jobId).orElse(null);
+            if (job == null || job.getEstado() != EstadoReporteJob.PENDIENTE) {
+                return;
+            }
+
+            job.setEstado(EstadoReporteJob.EN_PROCESO);
+            job = reporteJobRepository.save(job);
+
+            try {
+                Path destino = Paths.get(directorio, "reporte-" + job.getId() + "." + job.getFormato());
+                generar(job, destino);
+
+                job.setArchivo(destino.toString());
+                job.setEstado(EstadoReporteJob.COMPLETADO);
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return; // Apagado de la aplicación: queda EN_PROCESO y se recupera al reiniciar
+                }
+                e.printStackTrace();
+                job.setEstado(EstadoReporteJob.ERROR);
+                String mensaje = String.valueOf(e.getMessage());
+                job.setMensajeError(mensaje.length() > 1000 ? mensaje.substring(0, 1000) : mensaje);
+            }
+            reporteJobRepository.save(job);
+        } finally {
+            enCola.decrementAndGet();
+        }
+    }
+
+    private void generar(ReporteJob job, Path destino) throws Exception {
+        switch (job.getTipo()) {
+            case BOLETIN -> {
+                BoletinPreparado boletin = reporteService.prepararBoletin(job.getReferenciaId());
+                try (OutputStream out = Files.newOutputStream(destino)) {
+                    reporteService.exportarBoletin(boletin, out);
+                }
+            }
+            case BOLETINES_GRADO -> {
+                LoteBoletines lote = reporteService.prepararBoletinesGrado(job.getReferenciaId());
+                if (lote.isEmpty()) {
+                    throw new RuntimeException("El grado no tiene estudiantes");
+                }
+                try (OutputStream out = Files.newOutputStream(destino)) {
+                    if ("zip".equals(job.getFormato())) {
+                        reporteService.exportarLoteZip(lote, out);
+                    } else {
+                        reporteService.exportarLotePdf(lote, out);
+                    }
+                }
+            }
+        }
+    }
+
+    // Borra los archivos vencidos y marca sus trabajos como expirados; luego borra los registros viejos
+    @Scheduled(fixedDelayString = "${reportes.jobs.purga-cada:PT1H}", initialDelayString = "${reportes.jobs.purga-cada:PT1H}")
+    public void purgarVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        List<ReporteJob> vencidos = reporteJobRepository.findByEstadoAndFechaExpiracionIsNullAndFechaActualizacionBefore(
+                EstadoReporteJob.COMPLETADO, limite);
+        for (ReporteJob job : vencidos) {
+            try {
+                if (job.getArchivo() != null) {
+                    Files.deleteIfExists(archivoDe(job));
+                }
+                job.setFechaExpiracion(LocalDateTime.now());
+                reporteJobRepository.save(job);
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar el archivo del reporte " + job.getId() + ": " + e.getMessage());
+            }
+        }
+
+        // Archivos sin trabajo que los reclame (p. ej. de un trabajo que falló a mitad de la escritura)
+        int huerfanos = borrarArchivosAnterioresA(Instant.now().minus(retencion));
+
+        int registros = reporteJobRepository.deleteTerminadosAntesDe(
+                LocalDateTime.now().minus(retencionRegistros), EstadoReporteJob.ERROR);
+
+        if (!vencidos.isEmpty() || huerfanos > 0 || registros > 0) {
+            System.out.println("Purga de reportes: " + vencidos.size() + " archivos vencidos, "
+                    + huerfanos + " archivos huérfanos, " + registros + " registros borrados");
+        }
+    }
+
+    private int borrarArchivosAnterioresA(Instant limite) {
+        int borrados = 0;
+        try (Stream<Path> archivos = Files.list(Paths.get(directorio))) {
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                try {
+                    FileTime modificado = Files.getLastModifiedTime(archivo);
+                    if (Files.isRegularFile(archivo) && modificado.toInstant().isBefore(limite) && Files.deleteIfExists(archivo)) {
+                        borrados++;
+                    }
+                } catch (IOException e) {
+                    System.err.println("No se pudo borrar " + archivo + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo recorrer " + directorio + ": " + e.getMessage());
+        }
+        return borrados;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        // Los trabajos sin terminar quedan en la tabla y se recuperan en el próximo arranque
+        workers.shutdownNow();
+    }
+}
@@ -1,147 +1,376 @@
 package dev.gabus.dto.Reporte;
 
-import dev.gabus.dto.Calificacion.Calificacion;
-import dev.gabus.dto.Calificacion.CalificacionRepository;
+import dev.gabus.dto.Calificacion.CalculadoraNotas;
+import dev.gabus.dto.Calificacion.SumaTrimestreView;
+import dev.gabus.dto.Estudiante.Estudiante;
 import dev.gabus.dto.Estudiante.EstudianteRepository;
-import dev.gabus.dto.Materia.Materia;
+import dev.gabus.dto.Promedio.PromedioTrimestreRepository;
 import dev.gabus.dto.Reporte.ReporteCalificacionDTO;
+import dev.gabus.dto.Trimestre.Trimestre;
+import dev.gabus.dto.Trimestre.TrimestreRepository;
+import jakarta.annotation.PreDestroy;
 import net.sf.jasperreports.engine.*;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.export.ExporterInput;
+import net.sf.jasperreports.export.ExporterInputItem;
+import net.sf.jasperreports.export.SimpleExporterInputItem;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ResourceUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.Image;
-import java.io.File;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @lombok.RequiredArgsConstructor
 public class ReporteService {
-    private final CalificacionRepository calificacionRepository;
+    private final PromedioTrimestreRepository promedioTrimestreRepository;
     private final EstudianteRepository estudianteRepository;
+    private final TrimestreRepository trimestreRepository;
+    private final ReporteTemplateRegistry templateRegistry;
+    private final BoletinCache boletinCache;
 
-    public byte[] generarBoletin(Long estudianteId) throws Exception {
-        
-        System.setProperty("java.awt.headless", "true");
+    // Pool acotado para llenar boletines en paralelo (un hilo por núcleo). Un boletín son 1-2 páginas:
+    // lo que acota la memoria de un lote es la ventana de LlenadoEnOrden, no un virtualizador
+    private final int hilosLlenado = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService llenadoPool = Executors.newFixedThreadPool(hilosLlenado);
+
+    // Prepara el boletín de un estudiante: lo toma de la caché o llena la plantilla (sin exportar todavía)
+    public BoletinPreparado prepararBoletin(Long estudianteId) throws Exception {
 
         var estudiante = estudianteRepository.findById(estudianteId)
                 .orElseThrow(() -> new RuntimeException("Estudiante no encontrado"));
 
-        // 1. Traer TODAS las notas del estudiante
-        List<Calificacion> todasLasNotas = calificacionRepository.findByEstudianteId(estudianteId);
+        // 1. Calcular en la base de datos las sumas ponderadas por materia y trimestre del año del estudiante
+        int anioEscolar = estudiante.getGrado().getAnioEscolar();
+        List<Trimestre> trimestres = trimestreRepository.findByAnioEscolarOrderByFechaInicioAsc(anioEscolar);
+        List<ReporteCalificacionDTO> filas = construirFilas(
+                promedioTrimestreRepository.sumarPorMateriaYTrimestre(List.of(estudianteId), anioEscolar), trimestres);
 
-        // 2. Agrupar notas por Materia
-        Map<Materia, List<Calificacion>> notasPorMateria = todasLasNotas.stream()
-                .collect(Collectors.groupingBy(c -> c.getActividad().getMateria()));
+        // 2. Si el boletín ya se generó con estos mismos datos, se devuelve el de la caché
+        String huella = huellaBoletin(estudiante, filas);
+        Optional<byte[]> enCache = boletinCache.obtener(estudianteId, huella);
+        if (enCache.isPresent()) {
+            return new BoletinPreparado(estudianteId, huella, enCache.get(), null);
+        }
 
-        // 3. Construir la lista para el reporte (Filas)
-        List<ReporteCalificacionDTO> filasReporte = new ArrayList<>();
+        // 3. Llenar la plantilla
+        return new BoletinPreparado(estudianteId, huella, null, llenarBoletin(estudiante, filas));
+    }
 
-        for (Map.Entry<Materia, List<Calificacion>> entry : notasPorMateria.entrySet()) {
-            Materia materia = entry.getKey();
-            List<Calificacion> notas = entry.getValue();
+    // Exporta el boletín directamente al flujo de salida (respuesta HTTP o archivo), sin armar el PDF completo en memoria
+    public void exportarBoletin(BoletinPreparado boletin, OutputStream out) throws JRException, IOException {
+        if (boletin.pdfEnCache() != null) {
+            out.write(boletin.pdfEnCache());
+            return;
+        }
 
-            // Calcular promedio por trimestre (usando Streams y filtros)
-            BigDecimal t1 = calcularPromedioTrimestre(notas, "Trimestre 1");
-            BigDecimal t2 = calcularPromedioTrimestre(notas, "Trimestre 2");
-            BigDecimal t3 = calcularPromedioTrimestre(notas, "Trimestre 3");
+        // Mientras se transmite se guarda una copia para la caché (si no es demasiado grande)
+        CopiaLimitadaOutputStream salida = new CopiaLimitadaOutputStream(out, boletinCache.tamanoMaximoEntrada());
+        JasperExportManager.exportReportToPdfStream(boletin.print(), salida);
+        salida.flush();
+        salida.copia().ifPresent(pdf -> boletinCache.guardar(boletin.estudianteId(), boletin.huella(), pdf));
+    }
 
-            // Totales
-            BigDecimal total = t1.add(t2).add(t3);
-            BigDecimal promedio = total.divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP); // Redondeo a 2 decimales
+    public record BoletinPreparado(Long estudianteId, String huella, byte[] pdfEnCache, JasperPrint print) {}
 
-            filasReporte.add(new ReporteCalificacionDTO(
-                    materia.getNombre(),
-                    t1, t2, t3, total, promedio
-            ));
+    // --- Boletines por lote (todo un grado o todo un año escolar) ---
+
+    public LoteBoletines prepararBoletinesGrado(Long gradoId) throws Exception {
+        List<Estudiante> estudiantes = estudianteRepository.findByGrado_IdOrderByApellidosAscNombresAsc(gradoId);
+        if (estudiantes.isEmpty()) {
+            return LoteBoletines.VACIO;
+        }
+        return prepararBoletines(estudiantes, estudiantes.get(0).getGrado().getAnioEscolar());
+    }
+
+    public LoteBoletines prepararBoletinesAnio(int anioEscolar) throws Exception {
+        return prepararBoletines(estudianteRepository.findByGrado_AnioEscolarOrderByGrado_IdAscApellidosAscNombresAsc(anioEscolar), anioEscolar);
+    }
+
+    // Arma las filas de todos los estudiantes indicados; los boletines se llenan recién al exportar
+    private LoteBoletines prepararBoletines(List<Estudiante> estudiantes, int anioEscolar) throws Exception {
+        if (estudiantes.isEmpty()) {
+            return LoteBoletines.VACIO;
         }
 
-        // 4. Cargar imágenes y compilar reporte
-        InputStream reportStream = ReporteService.class.getClassLoader().getResourceAsStream("reports/boletin.jrxml");
-        if (reportStream == null) {
-            throw new IllegalStateException("No se pudo encontrar la plantilla del reporte: reports/boletin.jrxml");
+        // 1. Sumas ponderadas de todos los estudiantes en una sola consulta agregada
+        List<Long> ids = estudiantes.stream().map(Estudiante::getId).collect(Collectors.toList());
+        Map<Long, List<SumaTrimestreView>> sumasPorEstudiante = promedioTrimestreRepository.sumarPorMateriaYTrimestre(ids, anioEscolar).stream()
+                .collect(Collectors.groupingBy(SumaTrimestreView::getEstudianteId));
+        List<Trimestre> trimestres = trimestreRepository.findByAnioEscolarOrderByFechaInicioAsc(anioEscolar);
+
+        // 2. Las filas ocupan poco; los JasperPrint no: esos se llenan y exportan de a uno (ver LlenadoEnOrden)
+        List<List<ReporteCalificacionDTO>> filas = new ArrayList<>(estudiantes.size());
+        for (Estudiante estudiante : estudiantes) {
+            filas.add(construirFilas(sumasPorEstudiante.getOrDefault(estudiante.getId(), List.of()), trimestres));
         }
-        JasperReport jasperReport = JasperCompileManager.compileReport(reportStream);
+        return new LoteBoletines(estudiantes, filas);
+    }
 
-        Image leftLogo = null;
-        try (InputStream leftLogoStream = ReporteService.class.getClassLoader().getResourceAsStream("images/logoizquierda.png")) {
-            if (leftLogoStream == null) {
-                System.out.println("ADVERTENCIA DE DIAGNÓSTICO: No se pudo encontrar el recurso 'images/logoizquierda.png' en el classpath.");
-            } else {
-                leftLogo = ImageIO.read(leftLogoStream);
-                if (leftLogo == null) {
-                    System.out.println("ADVERTENCIA DE DIAGNÓSTICO: Se encontró 'images/logoizquierda.png', pero no se pudo leer (formato inválido o archivo corrupto).");
+    // Un único PDF con los boletines uno detrás de otro, escrito directamente en el flujo de salida
+    public void exportarLotePdf(LoteBoletines lote, OutputStream out) throws JRException, IOException {
+        try (LlenadoEnOrden llenado = new LlenadoEnOrden(lote)) {
+            EntradaEnOrden entrada = new EntradaEnOrden(llenado, lote.estudiantes().size());
+            try {
+                JRPdfExporter exporter = new JRPdfExporter();
+                exporter.setExporterInput(entrada);
+                exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+                exporter.exportReport();
+            } catch (JRRuntimeException e) {
+                // Error al llenar un boletín dentro de EntradaEnOrden
+                if (e.getCause() instanceof JRException causa) {
+                    throw causa;
+                }
+                if (e.getCause() instanceof IOException causa) {
+                    throw causa;
                 }
+                throw e;
             }
-        } catch (java.io.IOException e) {
-            System.err.println("ERROR DE DIAGNÓSTICO al leer el logo izquierdo: " + e.getMessage());
-        }
-
-        Image rightLogo = null;
-        try (InputStream rightLogoStream = ReporteService.class.getClassLoader().getResourceAsStream("images/logoderecha.png")) {
-            if (rightLogoStream == null) {
-                System.out.println("ADVERTENCIA DE DIAGNÓSTICO: No se pudo encontrar el recurso 'images/logoderecha.png' en el classpath.");
-            } else {
-                rightLogo = ImageIO.read(rightLogoStream);
-                if (rightLogo == null) {
-                    System.out.println("ADVERTENCIA DE DIAGNÓSTICO: Se encontró 'images/logoderecha.png', pero no se pudo leer (formato inválido o archivo corrupto).");
+        }
+    }
+
+    // Un ZIP con un PDF por estudiante
+    public void exportarLoteZip(LoteBoletines lote, OutputStream out) throws JRException, IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try (LlenadoEnOrden llenado = new LlenadoEnOrden(lote)) {
+            for (Estudiante estudiante : lote.estudiantes()) {
+                JasperPrint print = llenado.siguiente();
+                zip.putNextEntry(new ZipEntry(nombreArchivoBoletin(estudiante)));
+                JasperExportManager.exportReportToPdfStream(print, zip);
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+    }
+
+    // Estudiantes del lote y las filas del boletín de cada uno (mismo orden)
+    public record LoteBoletines(List<Estudiante> estudiantes, List<List<ReporteCalificacionDTO>> filas) {
+        static final LoteBoletines VACIO = new LoteBoletines(List.of(), List.of());
+
+        public boolean isEmpty() {
+            return estudiantes.isEmpty();
+        }
+    }
+
+    /**
+     * Llena los boletines de un lote en el pool, en el orden del lote y con una ventana acotada:
+     * nunca hay más de un boletín por hilo del pool llenado y esperando a ser exportado.
+     * close() descarta los que quedaron sin pedir (p. ej. si el cliente cortó la descarga).
+     */
+    private final class LlenadoEnOrden implements AutoCloseable {
+        private final LoteBoletines lote;
+        private final ArrayDeque<Future<JasperPrint>> enVuelo = new ArrayDeque<>();
+        private int siguienteAEncargar = 0;
+
+        LlenadoEnOrden(LoteBoletines lote) {
+            this.lote = lote;
+            while (enVuelo.size() < hilosLlenado && siguienteAEncargar < lote.estudiantes().size()) {
+                encargar();
+            }
+        }
+
+        private void encargar() {
+            Estudiante estudiante = lote.estudiantes().get(siguienteAEncargar);
+            List<ReporteCalificacionDTO> filas = lote.filas().get(siguienteAEncargar);
+            siguienteAEncargar++;
+            enVuelo.add(llenadoPool.submit(() -> llenarBoletin(estudiante, filas)));
+        }
+
+        JasperPrint siguiente() throws JRException, IOException {
+            Future<JasperPrint> pendiente = enVuelo.poll();
+            if (pendiente == null) {
+                throw new IllegalStateException("No quedan boletines en el lote");
+            }
+            if (siguienteAEncargar < lote.estudiantes().size()) {
+                encargar();
+            }
+            try {
+                return pendiente.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof JRException causa) {
+                    throw causa;
                 }
+                throw new JRException("Error llenando el boletín", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Exportación de boletines interrumpida");
             }
-        } catch (java.io.IOException e) {
-            System.err.println("ERROR DE DIAGNÓSTICO al leer el logo derecho: " + e.getMessage());
         }
 
-        Map<String, Object> parametros = new HashMap<>();
-        parametros.put("nombreEstudiante", estudiante.getApellidos() + " " + estudiante.getNombres()); // Formato: Apellido Nombre
-        parametros.put("paramLeftLogo", leftLogo);
-        parametros.put("paramRightLogo", rightLogo);
+        // Los que no empezaron no se llenan; los que están en curso terminan y se descartan
+        @Override
+        public void close() {
+            for (Future<JasperPrint> pendiente : enVuelo) {
+                pendiente.cancel(false);
+            }
+            enVuelo.clear();
+        }
+    }
 
+    /**
+     * Entrada del exportador PDF que pide cada boletín recién cuando el exportador llega a él
+     * (recorre los ítems por índice y en orden) y suelta el anterior al pasar al siguiente.
+     */
+    private static final class EntradaEnOrden extends AbstractList<ExporterInputItem> implements ExporterInput {
+        private final LlenadoEnOrden llenado;
+        private final int total;
+        private int indiceActual = -1;
+        private JasperPrint actual;
 
-        JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(filasReporte);
-        JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parametros, dataSource);
+        EntradaEnOrden(LlenadoEnOrden llenado, int total) {
+            this.llenado = llenado;
+            this.total = total;
+        }
 
-        return JasperExportManager.exportReportToPdf(jasperPrint);
+        @Override
+        public List<ExporterInputItem> getItems() {
+            return this;
+        }
+
+        @Override
+        public int size() {
+            return total;
+        }
+
+        @Override
+        public ExporterInputItem get(int indice) {
+            if (indice != indiceActual) {
+                if (indice != indiceActual + 1) {
+                    throw new IllegalStateException("Los boletines del lote solo se recorren en orden");
+                }
+                soltarActual();
+                try {
+                    actual = llenado.siguiente();
+                } catch (JRException | IOException e) {
+                    throw new JRRuntimeException(e);
+                }
+                indiceActual = indice;
+            }
+            return new SimpleExporterInputItem(actual);
+        }
+
+        // Sin referencias al boletín ya exportado, el recolector lo puede liberar
+        private void soltarActual() {
+            actual = null;
+        }
     }
 
-    // Helper para calcular promedio ponderado
-    private BigDecimal calcularPromedioTrimestre(List<Calificacion> notas, String nombreTrimestre) {
-        // 1. Filtrar las calificaciones que pertenecen al trimestre especificado
-        List<Calificacion> notasDelTrimestre = notas.stream()
-            .filter(n -> n.getActividad().getTrimestre().getNombre().equalsIgnoreCase(nombreTrimestre))
-            .collect(Collectors.toList());
-    
-        // Si no hay notas, el promedio es 0
-        if (notasDelTrimestre.isEmpty()) {
-            return BigDecimal.ZERO;
+    @PreDestroy
+    public void cerrarPool() {
+        llenadoPool.shutdown();
+    }
+
+    // --- Piezas comunes ---
+
+    // Arma una fila por materia con el promedio de cada trimestre del año (las sumas ya vienen de la base de datos)
+    // (estático y de paquete para poder medirlo en los benchmarks de src/jmh)
+    static List<ReporteCalificacionDTO> construirFilas(List<SumaTrimestreView> sumas, List<Trimestre> trimestres) {
+        // 1. Promedio ponderado de cada (materia, trimestre), agrupado por id de materia (no por nombre)
+        Map<Long, PromediosMateria> promediosPorMateria = new HashMap<>();
+        for (SumaTrimestreView suma : sumas) {
+            promediosPorMateria.computeIfAbsent(suma.getMateriaId(), id -> new PromediosMateria(id, suma.getMateria(), new HashMap<>()))
+                    .porTrimestre().put(suma.getTrimestreId(), calcularPromedioTrimestre(suma.getSumaPonderada(), suma.getSumaPonderaciones()));
+        }
+
+        // Materias en orden alfabético (y por id si se llaman igual),
+        // así la huella del boletín no depende del orden en que llegan las filas
+        List<PromediosMateria> materias = new ArrayList<>(promediosPorMateria.values());
+        materias.sort(Comparator.comparing(PromediosMateria::nombre).thenComparing(PromediosMateria::materiaId));
+
+        // 2. Construir la lista para el reporte (Filas), con tantas notas como trimestres tenga el año
+        List<ReporteCalificacionDTO> filasReporte = new ArrayList<>();
+
+        for (PromediosMateria materia : materias) {
+            List<BigDecimal> notas = new ArrayList<>(trimestres.size());
+            BigDecimal total = BigDecimal.ZERO;
+            for (Trimestre trimestre : trimestres) {
+                BigDecimal nota = materia.porTrimestre().getOrDefault(trimestre.getId(), BigDecimal.ZERO);
+                notas.add(nota);
+                total = total.add(nota);
+            }
+
+            BigDecimal promedio = trimestres.isEmpty()
+                    ? BigDecimal.ZERO
+                    : total.divide(BigDecimal.valueOf(trimestres.size()), 2, RoundingMode.HALF_UP); // Redondeo a 2 decimales
+
+            // La plantilla muestra tres columnas; el resto de trimestres (si los hay) va en notasTrimestres
+            filasReporte.add(new ReporteCalificacionDTO(
+                    materia.nombre(),
+                    notaEn(notas, 0), notaEn(notas, 1), notaEn(notas, 2),
+                    total, promedio, notas
+            ));
         }
-    
-        BigDecimal sumaPonderada = BigDecimal.ZERO;
-        BigDecimal sumaDePonderaciones = BigDecimal.ZERO;
-    
-        // 2. Calcular la suma de las notas multiplicadas por su ponderación
-        for (Calificacion calificacion : notasDelTrimestre) {
-            BigDecimal nota = calificacion.getNota();
-            BigDecimal ponderacion = calificacion.getActividad().getPonderacion();
-            
-            sumaPonderada = sumaPonderada.add(nota.multiply(ponderacion));
-            sumaDePonderaciones = sumaDePonderaciones.add(ponderacion);
-        }
-    
-        // 3. Evitar división por cero si la suma de ponderaciones es 0
-        if (sumaDePonderaciones.compareTo(BigDecimal.ZERO) == 0) {
+        return filasReporte;
+    }
+
+    private record PromediosMateria(Long materiaId, String nombre, Map<Long, BigDecimal> porTrimestre) {}
+
+    private static BigDecimal notaEn(List<BigDecimal> notas, int indice) {
+        return indice < notas.size() ? notas.get(indice) : BigDecimal.ZERO;
+    }
+
+    // Llena la plantilla ya compilada con los logos ya decodificados del registro
+    private JasperPrint llenarBoletin(Estudiante estudiante, List<ReporteCalificacionDTO> filasReporte) throws JRException {
+        JasperReport jasperReport = templateRegistry.getReporte("boletin");
+
+        Map<String, Object> parametros = templateRegistry.parametrosBase();
+        parametros.put("nombreEstudiante", estudiante.getApellidos() + " " + estudiante.getNombres()); // Formato: Apellido Nombre
+
+        JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(filasReporte);
+        return JasperFillManager.fillReport(jasperReport, parametros, dataSource);
+    }
+
+    // Huella (SHA-256) de los datos con que se llena el boletín: si no cambia, el PDF tampoco
+    private String huellaBoletin(Estudiante estudiante, List<ReporteCalificacionDTO> filas) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((estudiante.getApellidos() + "|" + estudiante.getNombres()).getBytes(StandardCharsets.UTF_8));
+            for (ReporteCalificacionDTO fila : filas) {
+                digest.update(fila.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String nombreArchivoBoletin(Estudiante estudiante) {
+        String nombre = (estudiante.getApellidos() + "_" + estudiante.getNombres()).replaceAll("[^\\p{L}\\p{N}_-]+", "_");
+        return estudiante.getId() + "_" + nombre + ".pdf";
+    }
+
+    // Helper para calcular promedio ponderado a partir de las sumas
+    public static BigDecimal calcularPromedioTrimestre(BigDecimal sumaPonderada, BigDecimal sumaDePonderaciones) {
+        // Evitar división por cero si no hay notas o la suma de ponderaciones es 0
+        if (sumaPonderada == null || sumaDePonderaciones == null || sumaDePonderaciones.compareTo(BigDecimal.ZERO) == 0) {
             return BigDecimal.ZERO;
         }
-    
-        // 4. Calcular el promedio ponderado y redondear a 2 decimales
-        return sumaPonderada.divide(sumaDePonderaciones, 2, RoundingMode.HALF_UP);
+
+        // Calcular el promedio ponderado y redondear a 2 decimales
+        return CalculadoraNotas.promedio(sumaPonderada, sumaDePonderaciones);
     }
-    
+
 }
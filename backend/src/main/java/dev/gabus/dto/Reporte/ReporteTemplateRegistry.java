@@ -0,0 +1,161 @@
+package dev.gabus.dto.Reporte;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * Registro de plantillas de reportes.
+ * Compila una sola vez (al arrancar) todas las plantillas reports/*.jrxml y decodifica
+ * las imágenes de images/*.png, de modo que generar un reporte solo implique llenar y exportar.
+ */
+@Component
+public class ReporteTemplateRegistry {
+
+    private static final String PATRON_PLANTILLAS = "classpath*:reports/*.jrxml";
+    private static final String PATRON_IMAGENES = "classpath*:images/*.png";
+
+    // Parámetros de logos que usan las plantillas (ver boletin.jrxml)
+    public static final String PARAM_LOGO_IZQUIERDO = "paramLeftLogo";
+    public static final String PARAM_LOGO_DERECHO = "paramRightLogo";
+
+    private final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+    // Nombre de la plantilla (sin extensión) -> plantilla compilada
+    private final Map<String, PlantillaCompilada> plantillas = new ConcurrentHashMap<>();
+
+    // Nombre de la imagen (sin extensión) -> imagen decodificada
+    private final Map<String, Image> imagenes = new ConcurrentHashMap<>();
+
+    // En desarrollo se puede activar para recompilar una plantilla cuando cambia el .jrxml
+    @Value("${reportes.plantillas.recarga-en-caliente:false}")
+    private boolean recargaEnCaliente;
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        // 1. Compilar todas las plantillas
+        for (Resource recurso : resolver.getResources(PATRON_PLANTILLAS)) {
+            String nombre = nombreSinExtension(recurso);
+            plantillas.put(nombre, compilar(nombre, recurso));
+        }
+
+        // 2. Decodificar las imágenes (logos)
+        for (Resource recurso : resolver.getResources(PATRON_IMAGENES)) {
+            String nombre = nombreSinExtension(recurso);
+            try (InputStream is = recurso.getInputStream()) {
+                Image imagen = ImageIO.read(is);
+                if (imagen == null) {
+                    System.out.println("ADVERTENCIA: Se encontró 'images/" + recurso.getFilename() + "', pero no se pudo leer (formato inválido o archivo corrupto).");
+                } else {
+                    imagenes.put(nombre, imagen);
+                }
+            } catch (IOException e) {
+                System.err.println("ERROR al leer la imagen '" + recurso.getFilename() + "': " + e.getMessage());
+            }
+        }
+
+        // 3. Calentar el motor (carga de clases, fuentes y exportador PDF)
+        for (String nombre : plantillas.keySet()) {
+            calentar(nombre);
+        }
+
+        System.out.println("Plantillas de reportes compiladas: " + plantillas.keySet() + " | Imágenes: " + imagenes.keySet());
+    }
+
+    // Devuelve la plantilla ya compilada (p. ej. "boletin")
+    public JasperReport getReporte(String nombre) {
+        PlantillaCompilada plantilla = plantillas.get(nombre);
+        if (plantilla == null) {
+            throw new IllegalStateException("No se pudo encontrar la plantilla del reporte: reports/" + nombre + ".jrxml");
+        }
+        if (recargaEnCaliente) {
+            plantilla = recargarSiCambio(nombre, plantilla);
+        }
+        return plantilla.reporte();
+    }
+
+    // Devuelve la imagen decodificada (p. ej. "logoizquierda"), o null si no existe
+    public Image getImagen(String nombre) {
+        return imagenes.get(nombre);
+    }
+
+    // Parámetros comunes a todos los reportes (logos). Se devuelve un mapa nuevo para que el llamador lo complete.
+    public Map<String, Object> parametrosBase() {
+        Map<String, Object> parametros = new HashMap<>();
+        parametros.put(PARAM_LOGO_IZQUIERDO, imagenes.get("logoizquierda"));
+        parametros.put(PARAM_LOGO_DERECHO, imagenes.get("logoderecha"));
+        return parametros;
+    }
+
+    private PlantillaCompilada compilar(String nombre, Resource recurso) {
+        try (InputStream is = recurso.getInputStream()) {
+            return new PlantillaCompilada(recurso, JasperCompileManager.compileReport(is), ultimaModificacion(recurso));
+        } catch (IOException | JRException e) {
+            throw new IllegalStateException("No se pudo compilar la plantilla reports/" + nombre + ".jrxml", e);
+        }
+    }
+
+    private PlantillaCompilada recargarSiCambio(String nombre, PlantillaCompilada actual) {
+        long modificacion = ultimaModificacion(actual.recurso());
+        if (modificacion <= actual.ultimaModificacion()) {
+            return actual;
+        }
+        synchronized (this) {
+            PlantillaCompilada vigente = plantillas.get(nombre);
+            if (vigente.ultimaModificacion() >= modificacion) {
+                return vigente;
+            }
+            System.out.println("Recompilando plantilla modificada: reports/" + nombre + ".jrxml");
+            PlantillaCompilada nueva = compilar(nombre, actual.recurso());
+            plantillas.put(nombre, nueva);
+            return nueva;
+        }
+    }
+
+    private void calentar(String nombre) {
+        try {
+            JasperPrint print = JasperFillManager.fillReport(plantillas.get(nombre).reporte(), parametrosBase(), new JREmptyDataSource(0));
+            JasperExportManager.exportReportToPdf(print);
+        } catch (Exception e) {
+            // El calentamiento es solo una optimización; un fallo aquí no debe impedir el arranque
+            System.out.println("ADVERTENCIA: No se pudo calentar la plantilla '" + nombre + "': " + e.getMessage());
+        }
+    }
+
+    private static long ultimaModificacion(Resource recurso) {
+        try {
+            return recurso.lastModified();
+        } catch (IOException e) {
+            return 0L; // Dentro de un JAR no hay fecha de modificación; nunca se recarga
+        }
+    }
+
+    private static String nombreSinExtension(Resource recurso) {
+        String archivo = recurso.getFilename();
+        int punto = archivo.lastIndexOf('.');
+        return punto > 0 ? archivo.substring(0, punto) : archivo;
+    }
+
+    private record PlantillaCompilada(Resource recurso, JasperReport reporte, long ultimaModificacion) {}
+}
@@ -0,0 +1,108 @@
+package dev.gabus.dto.Sincronizacion;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Piezas comunes de la sincronización incremental (calificaciones y actividades).
+ *
+ * Cada fila de la tabla lleva en version_cambio el id de la transacción que la escribió por última
+ * vez, y cada borrado deja una lápida (calificacion_borrada, actividad_borrada); ambas cosas las
+ * hacen triggers, así que cubren por igual los guardados por JPA, los upserts por JDBC y los DELETE masivos.
+ *
+ * El cursor es (version, id). Solo se entregan cambios de transacciones anteriores al xmin del snapshot
+ * actual, es decir, ya terminadas: una transacción que sigue abierta nunca queda detrás de un cursor
+ * ya entregado, aunque confirme después. Una transacción muy larga demora la entrega de lo posterior.
+ */
+@Component
+@RequiredArgsConstructor
+public class SincronizacionCambios {
+
+    public static final int LIMITE_POR_DEFECTO = 500;
+    public static final int LIMITE_MAXIMO = 5000;
+
+    // Primer cursor que todavía no se puede entregar
+    private static final String SQL_HORIZONTE = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crea (o reemplaza) los triggers de la tabla: tabla_marcar_version() antes de cada alta o cambio
+     * y tabla_registrar_borrado() (la define sqlFuncionBorrado) después de cada borrado.
+     * Devuelve cuántas filas anteriores a la columna recibieron versión.
+     */
+    public int instalarTriggers(String tabla, String sqlFuncionBorrado) {
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION " + tabla + "_marcar_version() RETURNS trigger AS $$ " +
+                "BEGIN NEW.version_cambio := pg_current_xact_id()::text::bigint; RETURN NEW; END " +
+                "$$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_" + tabla + "_version ON " + tabla);
+        jdbcTemplate.execute("CREATE TRIGGER trg_" + tabla + "_version BEFORE INSERT OR UPDATE ON " + tabla + " " +
+                "FOR EACH ROW EXECUTE FUNCTION " + tabla + "_marcar_version()");
+
+        jdbcTemplate.execute(sqlFuncionBorrado);
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_" + tabla + "_borrado ON " + tabla);
+        jdbcTemplate.execute("CREATE TRIGGER trg_" + tabla + "_borrado AFTER DELETE ON " + tabla + " " +
+                "FOR EACH ROW EXECUTE FUNCTION " + tabla + "_registrar_borrado()");
+
+        // Filas anteriores a la columna: el trigger les asigna versión
+        return jdbcTemplate.update("UPDATE " + tabla + " SET version_cambio = 0 WHERE version_cambio IS NULL");
+    }
+
+    /**
+     * Una página de cambios posteriores al cursor "since". La consulta recibe el cursor, el horizonte y
+     * el límite con una fila de más (para saber si hay otra página) y devuelve las filas ordenadas por (version, id).
+     */
+    public <T> Pagina<T> leerCambios(String since, int limite, ConsultaCambios<T> consulta,
+                                     ToLongFunction<T> version, ToLongFunction<T> id) {
+        Cursor cursor = Cursor.leer(since);
+        long horizonte = jdbcTemplate.queryForObject(SQL_HORIZONTE, Long.class);
+
+        List<T> cambios = consulta.consultar(cursor, horizonte, limite + 1);
+
+        boolean hayMas = cambios.size() > limite;
+        if (hayMas) {
+            cambios = cambios.subList(0, limite);
+        }
+        Cursor siguiente = cambios.isEmpty()
+                ? cursor
+                : new Cursor(version.applyAsLong(cambios.get(cambios.size() - 1)), id.applyAsLong(cambios.get(cambios.size() - 1)));
+
+        return new Pagina<>(cambios, siguiente.toString(), hayMas);
+    }
+
+    @FunctionalInterface
+    public interface ConsultaCambios<T> {
+        List<T> consultar(Cursor desde, long horizonte, int limite);
+    }
+
+    public record Pagina<T>(List<T> cambios, String siguiente, boolean hayMas) {}
+
+    public record Cursor(long version, long id) {
+
+        // Formato "<version>:<id>"; "0" (o vacío) es el principio
+        public static Cursor leer(String since) {
+            if (since == null || since.isBlank() || since.equals("0")) {
+                return new Cursor(0L, 0L);
+            }
+            int separador = since.indexOf(':');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + since);
+            }
+            try {
+                return new Cursor(Long.parseLong(since.substring(0, separador)), Long.parseLong(since.substring(separador + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + since);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return version + ":" + id;
+        }
+    }
+}
@@ -6,5 +6,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 public interface TrimestreRepository extends JpaRepository<Trimestre, Long> {
     //Busca trimestres por anioEscolar 
     List<Trimestre> findByAnioEscolar(int anioEscolar);
+
+    //Trimestres del año en orden cronológico (columnas del boletín)
+    List<Trimestre> findByAnioEscolarOrderByFechaInicioAsc(int anioEscolar);
     
 }
@@ -0,0 +1,171 @@
+package dev.gabus.dto.Calificacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dev.gabus.dto.Actividad.ActividadNodoView;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.ArbolActividades;
+import dev.gabus.dto.Calificacion.CalculadoraNotas.Evaluador;
+
+// Propiedad: para árboles y notas aleatorios, CalculadoraNotas da exactamente lo mismo que el cálculo con BigDecimal
+class CalculadoraNotasTest {
+
+	private static final int CASOS = 5000;
+
+	private final CalculadoraNotas calculadora = new CalculadoraNotas();
+
+	@Test
+	void coincideConBigDecimalEnArbolesAleatorios() {
+		Random random = new Random(20250101L);
+
+		for (int caso = 0; caso < CASOS; caso++) {
+			List<ActividadNodoView> actividades = arbolAleatorio(random);
+			ArbolActividades arbol = calculadora.compilar(actividades);
+			Evaluador evaluador = arbol.nuevoEvaluador();
+
+			// Varias filas con el mismo evaluador: los arreglos de trabajo deben quedar limpios entre filas
+			for (int fila = 0; fila < 5; fila++) {
+				Map<Long, BigDecimal> notas = notasAleatorias(actividades, random);
+
+				long[] centesimas = new long[arbol.tamano()];
+				Arrays.fill(centesimas, CalculadoraNotas.SIN_NOTA);
+				notas.forEach((id, nota) -> centesimas[arbol.columnaDe(id)] = CalculadoraNotas.aCentesimas(nota));
+
+				BigDecimal esperado = totalReferencia(actividades, notas);
+				BigDecimal obtenido = CalculadoraNotas.deCentesimas(evaluador.evaluar(centesimas, 0));
+
+				assertEquals(esperado, obtenido, () -> "Árbol: " + describir(actividades) + " | notas: " + notas);
+				assertEquals(notas.size(), evaluador.getCantidadNotas());
+			}
+		}
+	}
+
+	@Test
+	void dividirRedondeandoEsHalfUp() {
+		Random random = new Random(7L);
+		for (int i = 0; i < 100_000; i++) {
+			long n = random.nextInt(2_000_001) - 1_000_000;
+			long d = random.nextInt(20_000) + 1;
+			if (random.nextBoolean()) {
+				d = -d;
+			}
+			BigDecimal esperado = BigDecimal.valueOf(n).divide(BigDecimal.valueOf(d), 0, RoundingMode.HALF_UP);
+			assertEquals(esperado.longValueExact(), CalculadoraNotas.dividirRedondeando(n, d), n + " / " + d);
+		}
+	}
+
+	@Test
+	void promedioDeSumasGuardadas() {
+		Random random = new Random(11L);
+		for (int i = 0; i < 10_000; i++) {
+			BigDecimal suma = BigDecimal.valueOf(random.nextInt(100_000_000), 4);
+			BigDecimal peso = BigDecimal.valueOf(1 + random.nextInt(10_000), 2);
+			assertEquals(suma.divide(peso, 2, RoundingMode.HALF_UP), CalculadoraNotas.promedio(suma, peso));
+		}
+	}
+
+	// --- Referencia con BigDecimal, recursiva sobre el árbol (independiente del aplanado en arreglos) ---
+
+	private static BigDecimal totalReferencia(List<ActividadNodoView> actividades, Map<Long, BigDecimal> notas) {
+		Map<Long, ActividadNodoView> porId = new HashMap<>();
+		Map<Long, List<ActividadNodoView>> hijas = new HashMap<>();
+		for (ActividadNodoView actividad : actividades) {
+			porId.put(actividad.getId(), actividad);
+		}
+		List<ActividadNodoView> raices = new ArrayList<>();
+		for (ActividadNodoView actividad : actividades) {
+			if (actividad.getParentId() != null && porId.containsKey(actividad.getParentId())) {
+				hijas.computeIfAbsent(actividad.getParentId(), k -> new ArrayList<>()).add(actividad);
+			} else {
+				raices.add(actividad);
+			}
+		}
+		return promedioReferencia(raices, hijas, notas);
+	}
+
+	private static BigDecimal valorReferencia(ActividadNodoView actividad, Map<Long, List<ActividadNodoView>> hijas, Map<Long, BigDecimal> notas) {
+		BigDecimal propia = notas.get(actividad.getId());
+		List<ActividadNodoView> susHijas = hijas.getOrDefault(actividad.getId(), List.of());
+		if (!susHijas.isEmpty() && (actividad.getPromedia() || propia == null)) {
+			return promedioReferencia(susHijas, hijas, notas);
+		}
+		return propia;
+	}
+
+	private static BigDecimal promedioReferencia(List<ActividadNodoView> nodos, Map<Long, List<ActividadNodoView>> hijas, Map<Long, BigDecimal> notas) {
+		BigDecimal suma = BigDecimal.ZERO;
+		BigDecimal peso = BigDecimal.ZERO;
+		for (ActividadNodoView nodo : nodos) {
+			BigDecimal valor = valorReferencia(nodo, hijas, notas);
+			if (valor != null) {
+				suma = suma.add(valor.multiply(nodo.getPonderacion()));
+				peso = peso.add(nodo.getPonderacion());
+			}
+		}
+		return peso.signum() == 0 ? null : suma.divide(peso, 2, RoundingMode.HALF_UP);
+	}
+
+	// --- Generadores ---
+
+	// Hasta 30 actividades; el padre de cada una es una anterior (o ninguno), a veces un id que no está en la lista
+	private static List<ActividadNodoView> arbolAleatorio(Random random) {
+		int n = 1 + random.nextInt(30);
+		List<ActividadNodoView> actividades = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			long id = 100 + i;
+			Long parentId = null;
+			int tipo = random.nextInt(10);
+			if (i > 0 && tipo < 6) {
+				parentId = 100L + random.nextInt(i);
+			} else if (tipo == 6) {
+				parentId = 9_999L; // Padre de otra materia o trimestre: se trata como principal
+			}
+			// Ponderaciones con 0, 1 o 2 decimales y a veces 0
+			BigDecimal ponderacion = random.nextInt(12) == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(random.nextInt(10_001), random.nextInt(3));
+			actividades.add(new Nodo(id, ponderacion, random.nextBoolean(), parentId));
+		}
+		// El orden de llegada no debe importar
+		Collections.shuffle(actividades, random);
+		return actividades;
+	}
+
+	private static Map<Long, BigDecimal> notasAleatorias(List<ActividadNodoView> actividades, Random random) {
+		Map<Long, BigDecimal> notas = new HashMap<>();
+		for (ActividadNodoView actividad : actividades) {
+			if (random.nextInt(10) < 6) {
+				// Escala 0-10 o 0-100, siempre con 2 decimales como la columna calificacion.nota
+				int maximo = random.nextBoolean() ? 1_000 : 10_000;
+				notas.put(actividad.getId(), BigDecimal.valueOf(random.nextInt(maximo + 1), 2));
+			}
+		}
+		return notas;
+	}
+
+	private static String describir(List<ActividadNodoView> actividades) {
+		StringBuilder sb = new StringBuilder();
+		for (ActividadNodoView a : actividades) {
+			sb.append(a.getId()).append("(p=").append(a.getParentId()).append(", w=").append(a.getPonderacion())
+					.append(a.getPromedia() ? ", promedia" : "").append(") ");
+		}
+		return sb.toString();
+	}
+
+	private record Nodo(Long id, BigDecimal ponderacion, boolean promedia, Long parentId) implements ActividadNodoView {
+		@Override public Long getId() { return id; }
+		@Override public String getNombre() { return "Actividad " + id; }
+		@Override public BigDecimal getPonderacion() { return ponderacion; }
+		@Override public Boolean getPromedia() { return promedia; }
+		@Override public Long getParentId() { return parentId; }
+	}
+}
@@ -0,0 +1,122 @@
+package dev.gabus.dto.Estudiante;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Propiedades de los códigos de progreso: permutación con inversa, sin repetidos entre bloques, base 32 de Crockford
+class CodigoProgresoServiceTest {
+
+	private static final long MAXIMO = 1L << 40;
+	private static final String CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+	@Test
+	void codificarTieneInversa() {
+		CodigoProgresoService servicio = new CodigoProgresoService(null, "clave-de-prueba");
+		Random random = new Random(20250215L);
+
+		for (int i = 0; i < 200_000; i++) {
+			long numero = (random.nextLong() >>> 1) % MAXIMO;
+			assertEquals(numero, servicio.decodificar(servicio.codificar(numero)), "número " + numero);
+		}
+		// Bordes del rango de 40 bits
+		for (long numero : new long[] { 0, 1, CodigoProgresoService.BLOQUE, MAXIMO - 1 }) {
+			assertEquals(numero, servicio.decodificar(servicio.codificar(numero)));
+		}
+	}
+
+	@Test
+	void numerosConsecutivosDanCodigosDistintosYNoConsecutivos() {
+		CodigoProgresoService servicio = new CodigoProgresoService(null, "clave-de-prueba");
+		Set<String> vistos = new HashSet<>();
+		String anterior = null;
+		int parecidos = 0;
+		for (long numero = 1; numero <= 100_000; numero++) {
+			String codigo = servicio.codificar(numero);
+			assertTrue(vistos.add(codigo), "repetido: " + codigo);
+			if (anterior != null && anterior.substring(0, 6).equals(codigo.substring(0, 6))) {
+				parecidos++;
+			}
+			anterior = codigo;
+		}
+		// Sin permutación casi todos compartirían el prefijo con el anterior
+		assertTrue(parecidos < 100, parecidos + " códigos consecutivos con el mismo prefijo");
+	}
+
+	@Test
+	void sinRepetidosEntreBloquesNiEntreInstancias() {
+		SecuenciaEnMemoria secuencia = new SecuenciaEnMemoria();
+		// Dos instancias de la aplicación con la misma secuencia y la misma clave
+		CodigoProgresoService una = new CodigoProgresoService(secuencia, "clave-de-prueba");
+		CodigoProgresoService otra = new CodigoProgresoService(secuencia, "clave-de-prueba");
+		Random random = new Random(99L);
+
+		Set<String> vistos = new HashSet<>();
+		int total = 0;
+		while (total < 5 * CodigoProgresoService.BLOQUE) {
+			CodigoProgresoService servicio = random.nextBoolean() ? una : otra;
+			List<String> codigos = servicio.siguientes(1 + random.nextInt(300));
+			for (String codigo : codigos) {
+				assertTrue(vistos.add(codigo), "repetido: " + codigo);
+			}
+			total += codigos.size();
+		}
+		// Cada instancia reservó bloques enteros, uno por nextval
+		assertTrue(secuencia.llamadas <= total / CodigoProgresoService.BLOQUE + 2, secuencia.llamadas + " llamadas a nextval");
+	}
+
+	@Test
+	void soloCaracteresDeCrockford() {
+		CodigoProgresoService servicio = new CodigoProgresoService(null, "otra-clave");
+		Random random = new Random(5L);
+		for (int i = 0; i < 50_000; i++) {
+			String codigo = servicio.codificar((random.nextLong() >>> 1) % MAXIMO);
+			assertEquals(8, codigo.length());
+			for (char c : codigo.toCharArray()) {
+				assertTrue(CROCKFORD.indexOf(c) >= 0, "carácter fuera del alfabeto en " + codigo);
+			}
+		}
+		for (String invalido : new String[] { "0000000I", "L0000000", "000O0000", "0000U000", "abcdefgh", "1234567", "123456789" }) {
+			assertThrows(IllegalArgumentException.class, () -> servicio.decodificar(invalido), invalido);
+		}
+	}
+
+	@Test
+	void laClaveCambiaLaPermutacion() {
+		CodigoProgresoService una = new CodigoProgresoService(null, "clave-uno");
+		CodigoProgresoService otra = new CodigoProgresoService(null, "clave-dos");
+		List<String> distintos = new ArrayList<>();
+		for (long numero = 1; numero <= 1000; numero++) {
+			if (!una.codificar(numero).equals(otra.codificar(numero))) {
+				distintos.add(una.codificar(numero));
+			}
+		}
+		assertNotEquals(0, distintos.size());
+		assertTrue(distintos.size() > 990, "solo " + distintos.size() + " de 1000 cambian con la clave");
+	}
+
+	// Hace de codigo_progreso_seq (START WITH 1 INCREMENT BY BLOQUE) sin base de datos
+	private static class SecuenciaEnMemoria extends JdbcTemplate {
+		private long valor = 1 - CodigoProgresoService.BLOQUE;
+		private int llamadas = 0;
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public synchronized <T> T queryForObject(String sql, Class<T> tipo) {
+			assertEquals("SELECT nextval('codigo_progreso_seq')", sql);
+			llamadas++;
+			valor += CodigoProgresoService.BLOQUE;
+			return (T) Long.valueOf(valor);
+		}
+	}
+}
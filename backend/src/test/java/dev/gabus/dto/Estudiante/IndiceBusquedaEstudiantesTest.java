@@ -0,0 +1,271 @@
+package dev.gabus.dto.Estudiante;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import dev.gabus.dto.Grado.Grado;
+import dev.gabus.dto.Usuario.Usuario;
+
+// Ranking por prefijo y trigramas, filtros, altas/cambios/bajas y propiedad contra una búsqueda por fuerza bruta
+class IndiceBusquedaEstudiantesTest {
+
+	private static final int CASOS = 300;
+
+	private static final String[] NOMBRES = { "José", "Josefina", "Josué", "Ana", "Anabel", "María", "Mariano", "Luis", "Lucía", "Iñaki" };
+	private static final String[] APELLIDOS = { "González", "Gonzales", "Pérez", "Peralta", "Núñez", "Muñoz", "Martínez", "Martín", "Ruiz" };
+
+	@Test
+	void exactoAntesQuePrefijoAntesQueTrigramas() {
+		IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+		indice.actualizar(1L, "Josefina", "Ruiz", null, "AAAA0001", null);
+		indice.actualizar(2L, "José", "Ruiz", null, "AAAA0002", null);
+		indice.actualizar(3L, "Josué", "Ruiz", null, "AAAA0003", null);
+		indice.actualizar(4L, "Ana", "Ruiz", null, "AAAA0004", null);
+
+		List<ResultadoBusquedaEstudianteDTO> resultado = buscar(indice, "jose", null, 10);
+		assertEquals(List.of(2L, 1L, 3L), ids(resultado));
+		assertEquals(3.0, resultado.get(0).getPuntaje(), 1e-9);
+		assertEquals(2.5, resultado.get(1).getPuntaje(), 1e-9);
+		assertTrue(resultado.get(2).getPuntaje() < 1);
+	}
+
+	@Test
+	void sinAcentosNiMayusculasYConErroresDeTipeo() {
+		IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+		indice.actualizar(1L, "Iñaki", "Núñez", "inaki@escuela.edu", "K7M2P9QX", null);
+		indice.actualizar(2L, "Ana", "González", null, "ABCD1234", null);
+
+		assertEquals(List.of(1L), ids(buscar(indice, "NUNEZ", null, 10)));
+		assertEquals(List.of(1L), ids(buscar(indice, "inaki", null, 10)));
+		assertEquals(List.of(2L), ids(buscar(indice, "gonzales", null, 10)));
+		assertEquals(List.of(1L), ids(buscar(indice, "k7m2", null, 10)));
+		assertEquals(List.of(1L), ids(buscar(indice, "escuela", null, 10)));
+		assertEquals(List.of(), ids(buscar(indice, "   ", null, 10)));
+	}
+
+	@Test
+	void todosLosTerminosDebenCoincidirYEmpatesPorApellido() {
+		IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+		indice.actualizar(1L, "Ana", "Pérez", null, null, null);
+		indice.actualizar(2L, "Ana", "Martín", null, null, null);
+		indice.actualizar(3L, "Luis", "Pérez", null, null, null);
+		indice.actualizar(4L, "Ana", "González", null, null, null);
+
+		assertEquals(List.of(1L), ids(buscar(indice, "ana perez", null, 10)));
+		// Mismo puntaje: orden de apellidos y nombres
+		assertEquals(List.of(4L, 2L, 1L), ids(buscar(indice, "ana", null, 10)));
+		assertEquals(List.of(4L, 2L), ids(buscar(indice, "ana", null, 2)));
+	}
+
+	@Test
+	void unProfesorSoloVeSusGrados() {
+		IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+		indice.actualizarGrado(grado(10L, 7L));
+		indice.actualizarGrado(grado(20L, 8L));
+		indice.actualizar(1L, "Ana", "Pérez", null, null, 10L);
+		indice.actualizar(2L, "Ana", "Ruiz", null, null, 20L);
+		indice.actualizar(3L, "Ana", "Muñoz", null, null, null);
+
+		assertEquals(List.of(1L), ids(buscar(indice, "ana", 7L, 10)));
+		assertEquals(List.of(2L), ids(buscar(indice, "ana", 8L, 10)));
+		assertEquals(3, buscar(indice, "ana", null, 10).size());
+		assertEquals("7mo", buscar(indice, "perez", null, 10).get(0).getGradoNivel());
+
+		// El grado pasa a otro profesor
+		indice.actualizarGrado(grado(10L, 8L));
+		assertEquals(List.of(), ids(buscar(indice, "ana", 7L, 10)));
+		assertEquals(List.of(1L, 2L), ids(buscar(indice, "ana", 8L, 10)));
+	}
+
+	@Test
+	void cambiosYBajasSalenDelIndice() {
+		IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+		indice.actualizar(1L, "Mariano", "Peralta", null, null, null);
+		indice.actualizar(2L, "María", "Peralta", null, null, null);
+
+		indice.actualizar(1L, "Luis", "Peralta", null, null, null);
+		// "mariano" ya no es palabra de nadie: solo queda el parecido (trigramas) con "maria"
+		List<ResultadoBusquedaEstudianteDTO> parecidos = buscar(indice, "mariano", null, 10);
+		assertEquals(List.of(2L), ids(parecidos));
+		assertTrue(parecidos.get(0).getPuntaje() < 1);
+		assertEquals(List.of(1L), ids(buscar(indice, "luis", null, 10)));
+		assertEquals(List.of(1L, 2L), ids(buscar(indice, "peralta", null, 10)));
+
+		indice.quitar(2L);
+		assertEquals(List.of(1L), ids(buscar(indice, "peralta", null, 10)));
+		// "maria" ya no está ni por prefijo ni por trigramas
+		assertEquals(List.of(), ids(buscar(indice, "maria", null, 10)));
+		assertEquals(List.of(), ids(buscar(indice, "marria", null, 10)));
+
+		indice.quitar(1L);
+		indice.quitar(99L);
+		assertEquals(List.of(), ids(buscar(indice, "peralta", null, 10)));
+	}
+
+	@Test
+	void coincideConFuerzaBruta() {
+		Random random = new Random(20250310L);
+
+		for (int caso = 0; caso < CASOS; caso++) {
+			IndiceBusquedaEstudiantes indice = IndiceBusquedaEstudiantes.enMemoria();
+			Map<Long, String[]> alumnos = new HashMap<>();
+			Set<String> nombresUsados = new HashSet<>();
+
+			int operaciones = 5 + random.nextInt(60);
+			for (int op = 0; op < operaciones; op++) {
+				long id = 1 + random.nextInt(40);
+				if (random.nextInt(5) == 0) {
+					String[] quitado = alumnos.remove(id);
+					if (quitado != null) {
+						nombresUsados.remove(quitado[1] + "|" + quitado[0]);
+					}
+					indice.quitar(id);
+					continue;
+				}
+				String nombres = NOMBRES[random.nextInt(NOMBRES.length)] + (random.nextBoolean() ? "" : " " + NOMBRES[random.nextInt(NOMBRES.length)]);
+				String apellidos = APELLIDOS[random.nextInt(APELLIDOS.length)] + " " + APELLIDOS[random.nextInt(APELLIDOS.length)];
+				String[] anterior = alumnos.get(id);
+				if (anterior != null) {
+					nombresUsados.remove(anterior[1] + "|" + anterior[0]);
+				}
+				// Nombres completos únicos: el desempate por apellido y nombre queda bien definido
+				if (!nombresUsados.add(apellidos + "|" + nombres)) {
+					if (anterior != null) {
+						nombresUsados.add(anterior[1] + "|" + anterior[0]);
+					}
+					continue;
+				}
+				String codigo = codigoAleatorio(random);
+				alumnos.put(id, new String[] { nombres, apellidos, codigo });
+				indice.actualizar(id, nombres, apellidos, null, codigo, null);
+			}
+
+			for (int consulta = 0; consulta < 10; consulta++) {
+				String texto = consultaAleatoria(random);
+				int limite = 1 + random.nextInt(8);
+				List<ResultadoBusquedaEstudianteDTO> obtenido = buscar(indice, texto, null, limite);
+				List<Map.Entry<Long, Double>> esperado = referencia(alumnos, texto, limite);
+
+				assertEquals(esperado.size(), obtenido.size(), () -> "Consulta: " + texto);
+				for (int i = 0; i < esperado.size(); i++) {
+					assertEquals(esperado.get(i).getKey(), obtenido.get(i).getId(), "Consulta: " + texto + ", posición " + i);
+					assertEquals(esperado.get(i).getValue(), obtenido.get(i).getPuntaje(), 1e-9);
+				}
+			}
+		}
+	}
+
+	// --- Referencia: puntaje de cada estudiante recorriendo todas sus palabras ---
+
+	private static List<Map.Entry<Long, Double>> referencia(Map<Long, String[]> alumnos, String consulta, int limite) {
+		List<String> terminos = new ArrayList<>(new LinkedHashSet<>(IndiceBusquedaEstudiantes.dividir(consulta)));
+		List<Map.Entry<Long, Double>> puntajes = new ArrayList<>();
+		if (terminos.isEmpty()) {
+			return puntajes;
+		}
+		for (Map.Entry<Long, String[]> alumno : alumnos.entrySet()) {
+			Set<String> palabras = new LinkedHashSet<>();
+			for (String campo : alumno.getValue()) {
+				palabras.addAll(IndiceBusquedaEstudiantes.dividir(campo));
+			}
+			double total = 0;
+			boolean todos = true;
+			for (String termino : terminos) {
+				double mejor = 0;
+				for (String palabra : palabras) {
+					if (palabra.startsWith(termino)) {
+						mejor = Math.max(mejor, 2 + (double) termino.length() / palabra.length());
+					}
+					if (termino.length() >= 3) {
+						double similitud = similitud(termino, palabra);
+						if (similitud >= 0.3) {
+							mejor = Math.max(mejor, similitud);
+						}
+					}
+				}
+				if (mejor == 0) {
+					todos = false;
+					break;
+				}
+				total += mejor;
+			}
+			if (todos) {
+				puntajes.add(Map.entry(alumno.getKey(), total));
+			}
+		}
+		puntajes.sort(Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+				.thenComparing(e -> claveOrden(alumnos.get(e.getKey()))));
+		return puntajes.subList(0, Math.min(limite, puntajes.size()));
+	}
+
+	private static double similitud(String a, String b) {
+		Set<String> ta = IndiceBusquedaEstudiantes.trigramasDe(a);
+		Set<String> tb = IndiceBusquedaEstudiantes.trigramasDe(b);
+		Set<String> comunes = new HashSet<>(ta);
+		comunes.retainAll(tb);
+		return (double) comunes.size() / (ta.size() + tb.size() - comunes.size());
+	}
+
+	private static String claveOrden(String[] alumno) {
+		return IndiceBusquedaEstudiantes.normalizar(alumno[1]) + " " + IndiceBusquedaEstudiantes.normalizar(alumno[0]);
+	}
+
+	// Una o dos palabras del vocabulario: completas, cortadas (prefijo) o con una letra cambiada (trigramas)
+	private static String consultaAleatoria(Random random) {
+		StringBuilder consulta = new StringBuilder();
+		int terminos = 1 + random.nextInt(2);
+		for (int t = 0; t < terminos; t++) {
+			String[] vocabulario = random.nextBoolean() ? NOMBRES : APELLIDOS;
+			String palabra = IndiceBusquedaEstudiantes.normalizar(vocabulario[random.nextInt(vocabulario.length)]);
+			switch (random.nextInt(3)) {
+				case 0 -> palabra = palabra.substring(0, 1 + random.nextInt(palabra.length()));
+				case 1 -> {
+					char[] letras = palabra.toCharArray();
+					letras[random.nextInt(letras.length)] = (char) ('a' + random.nextInt(26));
+					palabra = new String(letras);
+				}
+				default -> { }
+			}
+			consulta.append(random.nextBoolean() ? palabra.toUpperCase() : palabra).append(' ');
+		}
+		return consulta.toString();
+	}
+
+	private static String codigoAleatorio(Random random) {
+		String alfabeto = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+		char[] codigo = new char[8];
+		for (int i = 0; i < codigo.length; i++) {
+			codigo[i] = alfabeto.charAt(random.nextInt(alfabeto.length()));
+		}
+		return new String(codigo);
+	}
+
+	private static List<ResultadoBusquedaEstudianteDTO> buscar(IndiceBusquedaEstudiantes indice, String consulta, Long profesorId, int limite) {
+		return indice.buscar(consulta, profesorId, limite).orElseThrow();
+	}
+
+	private static List<Long> ids(List<ResultadoBusquedaEstudianteDTO> resultado) {
+		return resultado.stream().map(ResultadoBusquedaEstudianteDTO::getId).toList();
+	}
+
+	private static Grado grado(Long id, Long profesorId) {
+		return Grado.builder()
+				.id(id)
+				.nivel("7mo")
+				.seccion("A")
+				.profesor(Usuario.builder().id(profesorId).build())
+				.build();
+	}
+}
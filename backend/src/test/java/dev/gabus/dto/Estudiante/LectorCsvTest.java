@@ -0,0 +1,122 @@
+package dev.gabus.dto.Estudiante;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Casos borde del CSV (tabla) y propiedad: lo que escribe un CSV RFC 4180 aleatorio se vuelve a leer igual
+class LectorCsvTest {
+
+	private static final int CASOS = 2000;
+
+	private static final Object[][] TABLA = {
+		// entrada, registros esperados
+		{ "a,b,c\n1,2,3\n", List.of(List.of("a", "b", "c"), List.of("1", "2", "3")) },
+		{ "a;b;c\r\n1;2;3\r\n", List.of(List.of("a", "b", "c"), List.of("1", "2", "3")) },
+		{ "nombres;nota\n\"Pérez, Ana\";5,5\n", List.of(List.of("nombres", "nota"), List.of("Pérez, Ana", "5,5")) },
+		{ "a,b\n\"dijo \"\"hola\"\"\",x\n", List.of(List.of("a", "b"), List.of("dijo \"hola\"", "x")) },
+		{ "a,b\n\"línea 1\nlínea 2\",x\n", List.of(List.of("a", "b"), List.of("línea 1\nlínea 2", "x")) },
+		{ "\uFEFFnombres,apellidos\nAna,Pérez", List.of(List.of("nombres", "apellidos"), List.of("Ana", "Pérez")) },
+		{ "\uFEFF\"nombres\";\"apellidos\"\n", List.of(List.of("nombres", "apellidos")) },
+		{ "a,,c\n,,\n", List.of(List.of("a", "", "c"), List.of("", "", "")) },
+		// Los separadores entre comillas no cuentan para detectar cuál se usa
+		{ "\"x,y,z\";b;c\n1;2;3\n", List.of(List.of("x,y,z", "b", "c"), List.of("1", "2", "3")) },
+		{ "\"a;b;c\",d\n", List.of(List.of("a;b;c", "d")) },
+		// Empate (o ninguno): coma
+		{ "solo\nuno\n", List.of(List.of("solo"), List.of("uno")) },
+		{ "\"\",\"\"\n", List.of(List.of("", "")) },
+		{ "a,\"b\"\n", List.of(List.of("a", "b")) },
+		{ "", List.of() },
+	};
+
+	@Test
+	void casosBorde() throws IOException {
+		for (Object[] caso : TABLA) {
+			String entrada = (String) caso[0];
+			assertEquals(caso[1], leerTodo(entrada), () -> "Entrada: " + entrada.replace("\n", "\\n").replace("\r", "\\r"));
+		}
+	}
+
+	@Test
+	void alFinalDevuelveNull() throws IOException {
+		LectorCsv lector = new LectorCsv(new BufferedReader(new StringReader("a,b\n")));
+		assertEquals(List.of("a", "b"), lector.siguienteRegistro());
+		assertNull(lector.siguienteRegistro());
+		assertNull(lector.siguienteRegistro());
+	}
+
+	@Test
+	void leeLoQueEscribeUnCsvAleatorio() throws IOException {
+		Random random = new Random(20250301L);
+
+		for (int caso = 0; caso < CASOS; caso++) {
+			char separador = random.nextBoolean() ? ',' : ';';
+			String finDeLinea = random.nextBoolean() ? "\n" : "\r\n";
+			int columnas = 1 + random.nextInt(6);
+
+			List<List<String>> registros = new ArrayList<>();
+			int filas = 1 + random.nextInt(8);
+			for (int fila = 0; fila < filas; fila++) {
+				List<String> registro = new ArrayList<>();
+				for (int columna = 0; columna < columnas; columna++) {
+					registro.add(campoAleatorio(random));
+				}
+				registros.add(registro);
+			}
+
+			StringBuilder csv = new StringBuilder(random.nextInt(4) == 0 ? "\uFEFF" : "");
+			for (List<String> registro : registros) {
+				for (int columna = 0; columna < registro.size(); columna++) {
+					if (columna > 0) {
+						csv.append(separador);
+					}
+					csv.append(escribirCampo(registro.get(columna), random));
+				}
+				csv.append(finDeLinea);
+			}
+
+			String entrada = csv.toString();
+			assertEquals(registros, leerTodo(entrada), () -> "CSV: " + entrada.replace("\n", "\\n").replace("\r", "\\r"));
+		}
+	}
+
+	// --- Apoyo ---
+
+	private static List<List<String>> leerTodo(String entrada) throws IOException {
+		LectorCsv lector = new LectorCsv(new BufferedReader(new StringReader(entrada)));
+		List<List<String>> registros = new ArrayList<>();
+		List<String> registro;
+		while ((registro = lector.siguienteRegistro()) != null) {
+			registros.add(registro);
+		}
+		return registros;
+	}
+
+	// Letras, acentos, separadores, comillas y saltos de línea (el \r solo entre comillas junto al \n)
+	private static String campoAleatorio(Random random) {
+		String[] piezas = { "a", "Z", "7", " ", "ñ", "é", ",", ";", "\"", "\n", "\r\n", "-" };
+		int largo = random.nextInt(7);
+		StringBuilder campo = new StringBuilder();
+		for (int i = 0; i < largo; i++) {
+			campo.append(piezas[random.nextInt(piezas.length)]);
+		}
+		return campo.toString();
+	}
+
+	// Entre comillas si hace falta (y a veces aunque no haga falta)
+	private static String escribirCampo(String campo, Random random) {
+		boolean necesita = campo.contains(",") || campo.contains(";") || campo.contains("\"") || campo.contains("\n");
+		if (necesita || random.nextInt(4) == 0) {
+			return "\"" + campo.replace("\"", "\"\"") + "\"";
+		}
+		return campo;
+	}
+}
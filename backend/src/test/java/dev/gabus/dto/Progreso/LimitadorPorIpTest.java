@@ -0,0 +1,101 @@
+package dev.gabus.dto.Progreso;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Balde de fichas por IP con tiempo simulado (nanosegundos) y tabla acotada LRU
+class LimitadorPorIpTest {
+
+	private static final long SEGUNDO = 1_000_000_000L;
+
+	@Test
+	void gastaLaRafagaYRecargaConElTiempo() {
+		LimitadorPorIp limitador = new LimitadorPorIp(5, 60, 100);
+		long t = 0;
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limitador.intentar("1.1.1.1", t), "ficha " + i);
+		}
+		assertFalse(limitador.intentar("1.1.1.1", t));
+
+		// 60 por minuto = una ficha por segundo
+		assertFalse(limitador.intentar("1.1.1.1", t + SEGUNDO / 2));
+		assertTrue(limitador.intentar("1.1.1.1", t + SEGUNDO));
+		assertFalse(limitador.intentar("1.1.1.1", t + SEGUNDO));
+
+		// Mucho tiempo sin pedir: vuelve a la capacidad, no más
+		t += 3600 * SEGUNDO;
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limitador.intentar("1.1.1.1", t));
+		}
+		assertFalse(limitador.intentar("1.1.1.1", t));
+	}
+
+	@Test
+	void cadaIpTieneSuBalde() {
+		LimitadorPorIp limitador = new LimitadorPorIp(2, 60, 100);
+		assertTrue(limitador.intentar("a", 0));
+		assertTrue(limitador.intentar("a", 0));
+		assertFalse(limitador.intentar("a", 0));
+		assertTrue(limitador.intentar("b", 0));
+	}
+
+	@Test
+	void nuncaPermiteMasQueCapacidadMasRecarga() {
+		Random random = new Random(42L);
+		LimitadorPorIp limitador = new LimitadorPorIp(10, 30, 1000);
+		long t = 0;
+		int permitidas = 0;
+		for (int i = 0; i < 20_000; i++) {
+			t += random.nextInt(200_000_000);
+			if (limitador.intentar("ip", t)) {
+				permitidas++;
+			}
+		}
+		long maximo = 10 + (long) Math.floor(t / (60.0 * SEGUNDO) * 30);
+		assertTrue(permitidas <= maximo, permitidas + " > " + maximo);
+		assertTrue(permitidas >= maximo - 1, permitidas + " muy por debajo de " + maximo);
+	}
+
+	@Test
+	void llenarLaTablaConIpsNuevasNoReiniciaLasActivas() {
+		LimitadorPorIp limitador = new LimitadorPorIp(3, 60, 50);
+
+		// La IP atacante gasta su balde
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limitador.intentar("atacante", 0));
+		}
+		assertFalse(limitador.intentar("atacante", 0));
+
+		// Muchas IPs nuevas, intercaladas con la atacante, que sigue sin fichas
+		for (int i = 0; i < 10_000; i++) {
+			limitador.intentar("10.0." + (i / 256) + "." + (i % 256), 0);
+			if (i % 10 == 0) {
+				assertFalse(limitador.intentar("atacante", 0), "la IP activa recuperó fichas en la vuelta " + i);
+			}
+		}
+		assertEquals(50, limitador.cantidadIps());
+	}
+
+	@Test
+	void saleLaIpMenosUsadaRecientemente() {
+		LimitadorPorIp limitador = new LimitadorPorIp(1, 60, 3);
+		assertTrue(limitador.intentar("vieja", 0));
+		assertTrue(limitador.intentar("usada", 0));
+		assertTrue(limitador.intentar("otra", 0));
+
+		// "usada" vuelve a pedir (y se queda sin fichas); la menos reciente pasa a ser "vieja"
+		assertFalse(limitador.intentar("usada", 0));
+		assertTrue(limitador.intentar("nueva", 0));
+		assertEquals(3, limitador.cantidadIps());
+
+		// "vieja" salió: vuelve con el balde lleno; "usada" sigue sin fichas
+		assertTrue(limitador.intentar("vieja", 0));
+		assertFalse(limitador.intentar("usada", 0));
+	}
+}